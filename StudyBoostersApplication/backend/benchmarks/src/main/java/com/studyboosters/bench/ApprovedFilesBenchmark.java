@@ -0,0 +1,74 @@
+package com.studyboosters.bench;
+
+import com.studyboosters.model.StudyFile;
+import com.studyboosters.service.DownloadCounterService;
+import com.studyboosters.service.StudyFileService;
+import com.studyboosters.store.LocalDataStore;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Approved-file listing over the embedded store: {@code filterInJava} loads and maps every file and
+ * filters afterwards (the original implementation); {@code getApprovedFiles} asks the store for
+ * {@code status == Approved} so rejected and pending rows are never mapped.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class ApprovedFilesBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    private int size;
+
+    private Path directory;
+    private LocalDataStore store;
+    private StudyFileService service;
+
+    @Setup
+    public void setUp() throws IOException {
+        List<StudyFile> files = Fixtures.files(size, 42);
+        Map<String, Object> updates = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            updates.put("files/" + String.format("-N%08d", i), files.get(i));
+        }
+
+        directory = Files.createTempDirectory("approved-bench");
+        store = new LocalDataStore(directory.toString(), false, Integer.MAX_VALUE);
+        store.open();
+        store.updateChildren(updates).join();
+        service = new StudyFileService(store, null, null, new DownloadCounterService(store), null, null, null, null);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        store.close();
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public List<StudyFile> filterInJava() {
+        return service.getAllFiles().join().stream()
+                .filter(f -> "Approved".equals(f.getStatus()))
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<StudyFile> getApprovedFiles() {
+        return service.getApprovedFiles().join();
+    }
+}
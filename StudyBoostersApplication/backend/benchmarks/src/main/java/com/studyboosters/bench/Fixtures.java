@@ -0,0 +1,92 @@
+package com.studyboosters.bench;
+
+import com.studyboosters.model.ActivityLog;
+import com.studyboosters.model.StudyFile;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic test data and wiring shared by the benchmarks.
+ */
+final class Fixtures {
+
+    static final String[] SUBJECTS = {"FWD", "MAI", "DSA", "CSE", "CODING"};
+    static final String[] STATUSES = {"Approved", "Approved", "Approved", "Pending", "Rejected"};
+    static final String[] WORDS = {"lecture", "notes", "unit", "lab", "manual", "question", "paper",
+            "assignment", "solutions", "syllabus", "tree", "graph", "sorting", "network", "database"};
+
+    private Fixtures() {
+    }
+
+    /**
+     * Files as stored under {@code files}: metadata only, no ids (those come from the keys).
+     */
+    static List<StudyFile> files(int count, long seed) {
+        Random random = new Random(seed);
+        List<StudyFile> files = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            StudyFile file = new StudyFile();
+            file.setTitle(title(random));
+            file.setSubject(SUBJECTS[random.nextInt(SUBJECTS.length)]);
+            file.setSemester(String.valueOf(1 + random.nextInt(8)));
+            file.setUploader("Student " + random.nextInt(1000));
+            file.setUploaderId("u" + random.nextInt(1000));
+            file.setFileType("PDF");
+            file.setFileSize((100 + random.nextInt(9000)) + " KB");
+            file.setUploadDate("2024-01-" + (10 + random.nextInt(19)));
+            file.setDownloadCount(random.nextInt(500));
+            file.setDescription("Study material for " + file.getSubject());
+            file.setStatus(STATUSES[random.nextInt(STATUSES.length)]);
+            files.add(file);
+        }
+        return files;
+    }
+
+    /**
+     * Activity log entries as the pipeline writes them.
+     */
+    static List<ActivityLog> logs(int count, long seed) {
+        String[] actions = {"Incoming Upload", "Resource Approved", "Resource Accessed", "Resource Purged"};
+        Random random = new Random(seed);
+        List<ActivityLog> logs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ActivityLog log = new ActivityLog();
+            log.setId(String.format("-N%08d", i));
+            log.setAction(actions[random.nextInt(actions.length)]);
+            log.setDetails("User 21CS" + random.nextInt(1000) + " downloaded \"" + title(random) + "\"");
+            log.setDownloads(random.nextInt(500));
+            log.setTimestamp(String.format("2024-01-%02dT%02d:%02d:%02d.000Z", 1 + random.nextInt(28),
+                    random.nextInt(24), random.nextInt(60), random.nextInt(60)));
+            log.setActionTimestamp(log.getAction() + "|" + log.getTimestamp());
+            logs.add(log);
+        }
+        return logs;
+    }
+
+    static String title(Random random) {
+        return WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)]
+                + " " + (1 + random.nextInt(50));
+    }
+
+    /**
+     * A base64 payload of the given decoded size, as clients upload it.
+     */
+    static String blob(int bytes, long seed) {
+        byte[] data = new byte[bytes];
+        new Random(seed).nextBytes(data);
+        return "data:application/pdf;base64," + Base64.getEncoder().encodeToString(data);
+    }
+
+    /**
+     * Sets a field that Spring would normally inject.
+     */
+    static void inject(Object target, String field, Object value) throws ReflectiveOperationException {
+        Field declared = target.getClass().getDeclaredField(field);
+        declared.setAccessible(true);
+        declared.set(target, value);
+    }
+}
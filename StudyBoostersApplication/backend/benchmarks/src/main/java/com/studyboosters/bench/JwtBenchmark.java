@@ -0,0 +1,53 @@
+package com.studyboosters.bench;
+
+import com.studyboosters.security.JwtTokenProvider;
+import com.studyboosters.security.UserPrincipal;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token issue and verification. With {@code cacheSize = 0} every {@code verify} checks the signature;
+ * otherwise repeat tokens are answered from the verified-token cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtBenchmark {
+
+    @Param({"0", "10000"})
+    private int cacheSize;
+
+    private JwtTokenProvider provider;
+    private String token;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        provider = new JwtTokenProvider(new SimpleMeterRegistry());
+        Fixtures.inject(provider, "jwtSecret", "BenchmarkSecretKey-OnlyUsedForBenchmarks-0123456789-0123456789");
+        Fixtures.inject(provider, "jwtExpiration", 86400000L);
+        Fixtures.inject(provider, "cacheSize", cacheSize);
+        provider.init();
+        token = provider.generateToken("user-1", "21CS001", "Student");
+    }
+
+    @Benchmark
+    public String generate() {
+        return provider.generateToken("user-1", "21CS001", "Student");
+    }
+
+    @Benchmark
+    public Optional<UserPrincipal> verify() {
+        return provider.verify(token);
+    }
+
+    @Benchmark
+    public String parseClaims() {
+        return provider.getUserIdFromToken(token);
+    }
+}
@@ -0,0 +1,136 @@
+package com.studyboosters.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.InternalHelpers;
+import com.google.firebase.database.snapshot.IndexedNode;
+import com.google.firebase.database.snapshot.NodeUtilities;
+import com.studyboosters.model.StudyFile;
+import com.studyboosters.service.FirebaseService;
+import com.studyboosters.store.LocalDataStore;
+import com.studyboosters.store.ModelMapping;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Mapping of list reads. {@code snapshotToModel} runs {@code FirebaseService.toModel} over the
+ * children of a real {@code DataSnapshot}, as every Firebase list read does, against
+ * {@code snapshotBeanMapping}, the SDK's reflective {@code getValue(Class)} it falls back to;
+ * {@code identitySetId} and {@code directSetId} compare {@code ModelMapping.withId} with a direct setter;
+ * {@code precompiledReader} and {@code beanMapping} decode plain record maps into models;
+ * {@code localStoreGetList} is a full {@code getList} through the embedded store.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MappingBenchmark {
+
+    @Param({"1000", "100000"})
+    private int size;
+
+    private List<StudyFile> files;
+    private String[] keys;
+    private List<Map<String, Object>> records;
+    private ObjectMapper objectMapper;
+    private DataSnapshot snapshot;
+    private Path directory;
+    private LocalDataStore store;
+
+    @Setup
+    public void setUp() throws IOException {
+        files = Fixtures.files(size, 42);
+        objectMapper = new ObjectMapper();
+        records = new ArrayList<>(size);
+        keys = new String[size];
+        Map<String, Object> updates = new HashMap<>();
+        Map<String, Object> tree = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            keys[i] = String.format("-N%08d", i);
+            updates.put("files/" + keys[i], files.get(i));
+            records.add(ModelMapping.record(objectMapper.convertValue(files.get(i), Map.class)));
+            tree.put(keys[i], records.get(i));
+        }
+
+        // The same snapshot the SDK hands to a listener; its reference is never used to reach a server
+        snapshot = InternalHelpers.createDataSnapshot(
+                InternalHelpers.createReference(null, new com.google.firebase.database.core.Path("study_boosters/files")),
+                IndexedNode.from(NodeUtilities.NodeFromJSON(tree)));
+
+        directory = Files.createTempDirectory("mapping-bench");
+        store = new LocalDataStore(directory.toString(), false, Integer.MAX_VALUE);
+        store.open();
+        store.updateChildren(updates).join();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        store.close();
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public void snapshotToModel(Blackhole blackhole) {
+        for (DataSnapshot child : snapshot.getChildren()) {
+            blackhole.consume(FirebaseService.toModel(child, StudyFile.class));
+        }
+    }
+
+    @Benchmark
+    public void snapshotBeanMapping(Blackhole blackhole) {
+        for (DataSnapshot child : snapshot.getChildren()) {
+            blackhole.consume(ModelMapping.withId(child.getValue(StudyFile.class), child.getKey()));
+        }
+    }
+
+    @Benchmark
+    public void identitySetId(Blackhole blackhole) {
+        for (int i = 0; i < size; i++) {
+            blackhole.consume(ModelMapping.withId(files.get(i), keys[i]));
+        }
+    }
+
+    @Benchmark
+    public void directSetId(Blackhole blackhole) {
+        for (int i = 0; i < size; i++) {
+            StudyFile item = files.get(i);
+            item.setId(keys[i]);
+            blackhole.consume(item);
+        }
+    }
+
+    @Benchmark
+    public void precompiledReader(Blackhole blackhole) {
+        ModelMapping.ModelReader<StudyFile> reader = ModelMapping.reader(StudyFile.class);
+        for (int i = 0; i < size; i++) {
+            blackhole.consume(reader.read(keys[i], records.get(i)));
+        }
+    }
+
+    @Benchmark
+    public void beanMapping(Blackhole blackhole) {
+        for (int i = 0; i < size; i++) {
+            blackhole.consume(ModelMapping.withId(objectMapper.convertValue(records.get(i), StudyFile.class), keys[i]));
+        }
+    }
+
+    @Benchmark
+    public List<StudyFile> localStoreGetList() {
+        return store.getList("files", StudyFile.class).join();
+    }
+}
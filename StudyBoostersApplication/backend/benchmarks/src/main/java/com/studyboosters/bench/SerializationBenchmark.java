@@ -0,0 +1,48 @@
+package com.studyboosters.bench;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.studyboosters.model.StudyFile;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Response serialisation of a {@code StudyFile} list, as the controllers send it, with and without
+ * an inline {@code fileBlobData} payload on every file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({"100", "1000"})
+    private int size;
+
+    @Param({"false", "true"})
+    private boolean withBlob;
+
+    private ObjectMapper objectMapper;
+    private List<StudyFile> files;
+
+    @Setup
+    public void setUp() {
+        // Same defaults as the ObjectMapper Spring MVC uses
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        files = Fixtures.files(size, 42);
+        if (withBlob) {
+            String blob = Fixtures.blob(64 * 1024, 7);
+            files.forEach(file -> file.setFileBlobData(blob));
+        }
+    }
+
+    @Benchmark
+    public byte[] serialize() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(files);
+    }
+}
@@ -0,0 +1,107 @@
+package com.studyboosters.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@code Trie} prefix search and title {@code quickSort} from {@code VirtualSharing.java}.
+ * That class lives in the default package, which named packages cannot reference, so its members
+ * are bound once through method handles during setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VirtualSharingBenchmark {
+
+    @Param({"1000", "10000"})
+    private int size;
+
+    private MethodHandle newTrie;
+    private MethodHandle insert;
+    private MethodHandle search;
+    private MethodHandle quickSort;
+
+    private List<String> titles;
+    private List<Object> materials;
+    private Object trie;
+    private String prefix;
+
+    @Setup
+    public void setUp() throws Throwable {
+        Class<?> trieClass = Class.forName("VirtualSharing$Trie");
+        Class<?> materialClass = Class.forName("VirtualSharing$Material");
+        newTrie = constructor(trieClass);
+        insert = method(trieClass, "insert", String.class, int.class);
+        search = method(trieClass, "search", String.class);
+        quickSort = method(Class.forName("VirtualSharing"), "quickSort", List.class, int.class, int.class);
+        MethodHandle newMaterial = constructor(materialClass,
+                String.class, String.class, String.class, String.class, int.class, String.class);
+
+        Random random = new Random(42);
+        titles = new ArrayList<>(size);
+        materials = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String title = Fixtures.title(random);
+            titles.add(title);
+            materials.add(newMaterial.invoke(title, Fixtures.SUBJECTS[i % Fixtures.SUBJECTS.length],
+                    "", "PDF", 100, "bench"));
+        }
+
+        trie = buildTrie();
+        prefix = titles.get(0).substring(0, 3);
+    }
+
+    @Benchmark
+    public Object trieBuild() throws Throwable {
+        return buildTrie();
+    }
+
+    @Benchmark
+    public Object trieSearch() throws Throwable {
+        return search.invoke(trie, prefix);
+    }
+
+    /**
+     * Sorts a fresh copy of the (unsorted) materials; the copy is part of the measured time.
+     */
+    @Benchmark
+    public List<Object> quickSort() throws Throwable {
+        List<Object> copy = new ArrayList<>(materials);
+        quickSort.invoke(copy, 0, copy.size() - 1);
+        return copy;
+    }
+
+    // Mirrors VirtualSharing.addMaterial: every title word is indexed
+    private Object buildTrie() throws Throwable {
+        Object built = newTrie.invoke();
+        for (int id = 0; id < titles.size(); id++) {
+            for (String word : titles.get(id).split("\\s+")) {
+                insert.invoke(built, word, id);
+            }
+        }
+        return built;
+    }
+
+    private static MethodHandle constructor(Class<?> owner, Class<?>... parameterTypes) throws ReflectiveOperationException {
+        Constructor<?> constructor = owner.getDeclaredConstructor(parameterTypes);
+        constructor.setAccessible(true);
+        return MethodHandles.lookup().unreflectConstructor(constructor);
+    }
+
+    private static MethodHandle method(Class<?> owner, String name, Class<?>... parameterTypes) throws ReflectiveOperationException {
+        Method method = owner.getDeclaredMethod(name, parameterTypes);
+        method.setAccessible(true);
+        return MethodHandles.lookup().unreflect(method);
+    }
+}
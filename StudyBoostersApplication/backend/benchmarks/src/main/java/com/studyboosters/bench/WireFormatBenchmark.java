@@ -0,0 +1,114 @@
+package com.studyboosters.bench;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.studyboosters.model.ActivityLog;
+import com.studyboosters.model.StudyFile;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Wire formats for the list endpoints: JSON, Smile and CBOR, each with and without gzip. Timing
+ * covers encoding (server side) and decoding (client side); the {@code wireBytes} secondary metric
+ * is the payload size, so size and latency land in the same results file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WireFormatBenchmark {
+
+    @Param({"files", "logs"})
+    private String payload;
+
+    @Param({"100", "1000"})
+    private int size;
+
+    @Param({"json", "smile", "cbor"})
+    private String format;
+
+    @Param({"false", "true"})
+    private boolean gzip;
+
+    private ObjectMapper objectMapper;
+    private JavaType type;
+    private List<?> items;
+    private byte[] encoded;
+
+    /**
+     * Size of one encoded payload, reported alongside the timings.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class PayloadSize {
+        public long wireBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            wireBytes = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        objectMapper = Jackson2ObjectMapperBuilder.json().factory(factory()).build();
+        if ("files".equals(payload)) {
+            items = Fixtures.files(size, 42);
+            type = objectMapper.getTypeFactory().constructCollectionType(List.class, StudyFile.class);
+        } else {
+            items = Fixtures.logs(size, 42);
+            type = objectMapper.getTypeFactory().constructCollectionType(List.class, ActivityLog.class);
+        }
+        encoded = serialize();
+    }
+
+    @Benchmark
+    public byte[] encode(PayloadSize payloadSize) throws IOException {
+        byte[] bytes = serialize();
+        payloadSize.wireBytes = bytes.length;
+        return bytes;
+    }
+
+    @Benchmark
+    public List<?> decode() throws IOException {
+        InputStream in = new ByteArrayInputStream(encoded);
+        if (gzip) {
+            in = new GZIPInputStream(in);
+        }
+        return objectMapper.readValue(in, type);
+    }
+
+    private byte[] serialize() throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (OutputStream out = gzip ? new GZIPOutputStream(buffer) : buffer) {
+            objectMapper.writeValue(out, items);
+        }
+        return buffer.toByteArray();
+    }
+
+    private JsonFactory factory() {
+        switch (format) {
+            case "smile":
+                return new SmileFactory();
+            case "cbor":
+                return new CBORFactory();
+            default:
+                return new JsonFactory();
+        }
+    }
+}
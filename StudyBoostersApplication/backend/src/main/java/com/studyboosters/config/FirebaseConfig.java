@@ -4,7 +4,9 @@ import com.google.auth.oauth2.GoogleCredentials;
 import com.google.firebase.FirebaseApp;
 import com.google.firebase.FirebaseOptions;
 import com.google.firebase.database.FirebaseDatabase;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.io.Resource;
@@ -12,7 +14,9 @@ import org.springframework.core.io.Resource;
 import javax.annotation.PostConstruct;
 import java.io.IOException;
 
+@Slf4j
 @Configuration
+@ConditionalOnProperty(name = "storage.backend", havingValue = "firebase", matchIfMissing = true)
 public class FirebaseConfig {
 
     @Value("${firebase.database.url}")
@@ -31,10 +35,10 @@ public class FirebaseConfig {
 
             if (FirebaseApp.getApps().isEmpty()) {
                 FirebaseApp.initializeApp(options);
-                System.out.println("Firebase Admin SDK initialized successfully!");
+                log.info("Firebase Admin SDK initialized");
             }
         } catch (IOException e) {
-            System.err.println("Error initializing Firebase: " + e.getMessage());
+            log.error("Error initializing Firebase", e);
             throw new RuntimeException("Failed to initialize Firebase", e);
         }
     }
@@ -1,6 +1,7 @@
 package com.studyboosters.controller;
 
 import com.studyboosters.dto.request.LoginRequest;
+import com.studyboosters.model.User;
 import com.studyboosters.security.UserPrincipal;
 import com.studyboosters.service.AuthService;
 import lombok.RequiredArgsConstructor;
@@ -8,7 +9,8 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.concurrent.ExecutionException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/auth")
@@ -18,14 +20,13 @@ public class AuthController {
     private final AuthService authService;
 
     @PostMapping("/login")
-    public ResponseEntity<?> login(@RequestBody LoginRequest request) throws ExecutionException, InterruptedException {
-        return ResponseEntity.ok(authService.login(request.getRollNumber()));
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> login(@RequestBody LoginRequest request) {
+        return authService.login(request.getRollNumber()).thenApply(ResponseEntity::ok);
     }
 
     @PostMapping("/promote-admin")
-    public ResponseEntity<?> promoteToAdmin(@AuthenticationPrincipal UserPrincipal principal)
-            throws ExecutionException, InterruptedException {
-        return ResponseEntity.ok(authService.promoteToAdmin(principal.getUserId()));
+    public CompletableFuture<ResponseEntity<User>> promoteToAdmin(@AuthenticationPrincipal UserPrincipal principal) {
+        return authService.promoteToAdmin(principal.getUserId()).thenApply(ResponseEntity::ok);
     }
 
     @GetMapping("/me")
@@ -0,0 +1,40 @@
+package com.studyboosters.controller;
+
+import com.studyboosters.service.CollectionVersions;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Conditional GET against a collection version stamp. The stamp is taken before the read, so a
+ * write racing the read can only make the body newer than its tag, never older. Responses are
+ * marked {@code no-cache, private} so browsers keep them and revalidate instead of refetching.
+ */
+final class ConditionalGet {
+
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
+    private ConditionalGet() {
+    }
+
+    static <T> CompletableFuture<ResponseEntity<T>> respond(WebRequest request, CollectionVersions.Stamp stamp,
+            String variant, Supplier<CompletableFuture<T>> read) {
+        String etag = stamp.etag(variant);
+        if (request.checkNotModified(etag, stamp.lastModified())) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .lastModified(stamp.lastModified())
+                    .cacheControl(REVALIDATE)
+                    .build());
+        }
+        return read.get().thenApply(body -> ResponseEntity.ok()
+                .eTag(etag)
+                .lastModified(stamp.lastModified())
+                .cacheControl(REVALIDATE)
+                .body(body));
+    }
+}
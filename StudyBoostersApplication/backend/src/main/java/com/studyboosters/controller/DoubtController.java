@@ -0,0 +1,66 @@
+package com.studyboosters.controller;
+
+import com.studyboosters.dto.request.DoubtAnswerRequest;
+import com.studyboosters.dto.request.DoubtRequest;
+import com.studyboosters.dto.response.PageResponse;
+import com.studyboosters.model.Doubt;
+import com.studyboosters.security.UserPrincipal;
+import com.studyboosters.service.DoubtService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+@RestController
+@RequestMapping("/api/doubts")
+@RequiredArgsConstructor
+public class DoubtController {
+
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private final DoubtService doubtService;
+
+    /**
+     * Newest-first page of a subject's doubts, optionally by status. Pass {@code nextCursor} back as {@code cursor}.
+     */
+    @GetMapping
+    public CompletableFuture<ResponseEntity<PageResponse<Doubt>>> getDoubts(@RequestParam String subject,
+            @RequestParam(required = false) String status,
+            @RequestParam(defaultValue = "20") int limit,
+            @RequestParam(required = false) String cursor) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        return doubtService.getDoubts(subject, status, pageSize, cursor).thenApply(ResponseEntity::ok);
+    }
+
+    @GetMapping("/mine")
+    public CompletableFuture<ResponseEntity<PageResponse<Doubt>>> getMyDoubts(
+            @RequestParam(defaultValue = "20") int limit,
+            @RequestParam(required = false) String cursor,
+            @AuthenticationPrincipal UserPrincipal principal) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        return doubtService.getStudentDoubts(principal.getUserId(), pageSize, cursor).thenApply(ResponseEntity::ok);
+    }
+
+    @GetMapping("/counts")
+    public CompletableFuture<ResponseEntity<Map<String, Long>>> getCounts(@RequestParam String subject) {
+        return doubtService.getCounts(subject).thenApply(ResponseEntity::ok);
+    }
+
+    @PostMapping
+    public CompletableFuture<ResponseEntity<Doubt>> postDoubt(@RequestBody DoubtRequest request,
+            @AuthenticationPrincipal UserPrincipal principal) {
+        return doubtService.postDoubt(request.getSubject(), request.getQuestion(), principal.getUserId(),
+                principal.getRollNumber()).thenApply(ResponseEntity::ok);
+    }
+
+    @PostMapping("/{id}/answer")
+    public CompletableFuture<ResponseEntity<Doubt>> answerDoubt(@PathVariable String id,
+            @RequestBody DoubtAnswerRequest request,
+            @AuthenticationPrincipal UserPrincipal principal) {
+        return doubtService.answerDoubt(id, request.getAnswer(), principal.getRollNumber())
+                .thenApply(ResponseEntity::ok);
+    }
+}
@@ -1,87 +1,305 @@
 package com.studyboosters.controller;
 
+import com.studyboosters.dto.request.BulkFileRequest;
+import com.studyboosters.dto.response.PageResponse;
+import com.studyboosters.exception.BadRequestException;
 import com.studyboosters.exception.UnauthorizedException;
+import com.studyboosters.model.BlobManifest;
 import com.studyboosters.model.StudyFile;
 import com.studyboosters.security.UserPrincipal;
+import com.studyboosters.service.CollectionVersions;
+import com.studyboosters.service.FileSearchService;
+import com.studyboosters.service.ModerationQueueService;
 import com.studyboosters.service.StudyFileService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/files")
 @RequiredArgsConstructor
 public class FileController {
 
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final int MAX_SEARCH_PAGE_SIZE = 100;
+    private static final int MAX_BULK_IDS = 500;
+
     private final StudyFileService fileService;
+    private final FileSearchService fileSearchService;
+    private final CollectionVersions collectionVersions;
+    private final ModerationQueueService moderationQueueService;
 
+    /**
+     * Filtered, sorted page of files. Pass {@code nextCursor} back as {@code cursor} for the next page.
+     */
     @GetMapping
-    public ResponseEntity<List<StudyFile>> getAllFiles(@AuthenticationPrincipal UserPrincipal principal)
-            throws ExecutionException, InterruptedException {
+    public CompletableFuture<ResponseEntity<PageResponse<StudyFile>>> getFiles(
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String subject,
+            @RequestParam(required = false) String semester,
+            @RequestParam(required = false) String fileType,
+            @RequestParam(required = false) String sort,
+            @RequestParam(defaultValue = "50") int limit,
+            @RequestParam(required = false) String cursor,
+            @AuthenticationPrincipal UserPrincipal principal, WebRequest request) {
+        // Students only see approved files, admins see all
+        if (!"Admin".equals(principal.getRole())) {
+            status = "Approved";
+        }
+
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        String filterStatus = status;
+        String variant = String.join("|", String.valueOf(filterStatus), String.valueOf(subject),
+                String.valueOf(semester), String.valueOf(fileType), String.valueOf(sort),
+                String.valueOf(pageSize), String.valueOf(cursor));
+        return ConditionalGet.respond(request, collectionVersions.current(CollectionVersions.FILES), variant,
+                () -> fileService.getFiles(filterStatus, subject, semester, fileType, sort, pageSize, cursor));
+    }
+
+    /**
+     * Ranked prefix search over file metadata. Pass {@code nextCursor} back as {@code cursor} for the next page.
+     */
+    @GetMapping("/search")
+    public CompletableFuture<ResponseEntity<PageResponse<StudyFile>>> searchFiles(@RequestParam String q,
+            @RequestParam(defaultValue = "20") int limit,
+            @RequestParam(required = false) String cursor,
+            @AuthenticationPrincipal UserPrincipal principal) {
+        int offset = 0;
+        if (cursor != null) {
+            try {
+                offset = Math.max(0, Integer.parseInt(cursor));
+            } catch (NumberFormatException e) {
+                throw new BadRequestException("Invalid cursor");
+            }
+        }
+
+        int pageSize = Math.max(1, Math.min(limit, MAX_SEARCH_PAGE_SIZE));
         // Students only see approved files, admins see all
-        if ("Admin".equals(principal.getRole())) {
-            return ResponseEntity.ok(fileService.getAllFiles());
-        } else {
-            return ResponseEntity.ok(fileService.getApprovedFiles());
+        boolean includeUnapproved = "Admin".equals(principal.getRole());
+        return CompletableFuture.completedFuture(
+                ResponseEntity.ok(fileSearchService.search(q, includeUnapproved, offset, pageSize)));
+    }
+
+    /**
+     * Files awaiting review, oldest first. Pass {@code nextCursor} back as {@code cursor} for the next page.
+     */
+    @GetMapping("/pending")
+    public CompletableFuture<ResponseEntity<PageResponse<StudyFile>>> getPendingFiles(
+            @RequestParam(defaultValue = "50") int limit,
+            @RequestParam(required = false) String cursor,
+            @AuthenticationPrincipal UserPrincipal principal, WebRequest request) {
+        if (!"Admin".equals(principal.getRole())) {
+            throw new UnauthorizedException("Only admins can view the moderation queue");
+        }
+
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        String variant = "pending|" + pageSize + "|" + cursor;
+        return ConditionalGet.respond(request, collectionVersions.current(CollectionVersions.FILES), variant,
+                () -> moderationQueueService.getPending(pageSize, cursor));
+    }
+
+    /**
+     * Number of files per status.
+     */
+    @GetMapping("/counts")
+    public CompletableFuture<ResponseEntity<Map<String, Long>>> getFileCounts(
+            @AuthenticationPrincipal UserPrincipal principal, WebRequest request) {
+        if (!"Admin".equals(principal.getRole())) {
+            throw new UnauthorizedException("Only admins can view file counts");
         }
+        return ConditionalGet.respond(request, collectionVersions.current(CollectionVersions.FILES), "counts",
+                moderationQueueService::getCounts);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<StudyFile> getFileById(@PathVariable String id)
-            throws ExecutionException, InterruptedException {
-        return ResponseEntity.ok(fileService.getFileById(id));
+    public CompletableFuture<ResponseEntity<StudyFile>> getFileById(@PathVariable String id) {
+        return fileService.getFileById(id).thenApply(ResponseEntity::ok);
     }
 
     @PostMapping("/upload")
-    public ResponseEntity<StudyFile> uploadFile(@RequestBody StudyFile file,
-            @AuthenticationPrincipal UserPrincipal principal)
-            throws ExecutionException, InterruptedException {
-        StudyFile uploadedFile = fileService.uploadFile(file, principal.getUserId(), principal.getRollNumber());
-        return ResponseEntity.ok(uploadedFile);
+    public CompletableFuture<ResponseEntity<StudyFile>> uploadFile(@RequestBody StudyFile file,
+            @AuthenticationPrincipal UserPrincipal principal) {
+        return fileService.uploadFile(file, principal.getUserId(), principal.getRollNumber())
+                .thenApply(ResponseEntity::ok);
+    }
+
+    /**
+     * Publishes a file with the same content as one of the caller's own files, identified by
+     * {@code contentHash} (hex SHA-256 of the file bytes). Returns 404 otherwise; upload it normally then.
+     */
+    @PostMapping("/upload/by-hash")
+    public CompletableFuture<ResponseEntity<StudyFile>> uploadFileByHash(@RequestBody StudyFile file,
+            @AuthenticationPrincipal UserPrincipal principal) {
+        return fileService.uploadByHash(file, principal.getUserId(), principal.getRollNumber())
+                .thenApply(ResponseEntity::ok);
     }
 
     @PostMapping("/{id}/approve")
-    public ResponseEntity<?> approveFile(@PathVariable String id,
-            @AuthenticationPrincipal UserPrincipal principal)
-            throws ExecutionException, InterruptedException {
+    public CompletableFuture<ResponseEntity<Map<String, String>>> approveFile(@PathVariable String id,
+            @AuthenticationPrincipal UserPrincipal principal) {
         if (!"Admin".equals(principal.getRole())) {
             throw new UnauthorizedException("Only admins can approve files");
         }
 
-        fileService.approveFile(id);
-
-        Map<String, String> response = new HashMap<>();
-        response.put("message", "File approved successfully");
-        return ResponseEntity.ok(response);
+        return fileService.approveFile(id).thenApply(v -> {
+            Map<String, String> response = new HashMap<>();
+            response.put("message", "File approved successfully");
+            return ResponseEntity.ok(response);
+        });
     }
 
     @DeleteMapping("/{id}")
-    public ResponseEntity<?> deleteFile(@PathVariable String id,
-            @AuthenticationPrincipal UserPrincipal principal)
-            throws ExecutionException, InterruptedException {
+    public CompletableFuture<ResponseEntity<Map<String, String>>> deleteFile(@PathVariable String id,
+            @AuthenticationPrincipal UserPrincipal principal) {
         if (!"Admin".equals(principal.getRole())) {
             throw new UnauthorizedException("Only admins can delete files");
         }
 
-        fileService.deleteFile(id);
+        return fileService.deleteFile(id).thenApply(v -> {
+            Map<String, String> response = new HashMap<>();
+            response.put("message", "File deleted successfully");
+            return ResponseEntity.ok(response);
+        });
+    }
 
-        Map<String, String> response = new HashMap<>();
-        response.put("message", "File deleted successfully");
-        return ResponseEntity.ok(response);
+    /**
+     * Approves up to {@value #MAX_BULK_IDS} files in one atomic write; {@code results} maps each id to its outcome.
+     */
+    @PostMapping("/bulk/approve")
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> approveFiles(@RequestBody BulkFileRequest request,
+            @AuthenticationPrincipal UserPrincipal principal) {
+        if (!"Admin".equals(principal.getRole())) {
+            throw new UnauthorizedException("Only admins can approve files");
+        }
+        checkBulkIds(request);
+
+        return fileService.approveFiles(request.getIds()).thenApply(results -> bulkResponse(results, "approved"));
+    }
+
+    /**
+     * Deletes up to {@value #MAX_BULK_IDS} files in one atomic write; {@code results} maps each id to its outcome.
+     */
+    @PostMapping("/bulk/delete")
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> deleteFiles(@RequestBody BulkFileRequest request,
+            @AuthenticationPrincipal UserPrincipal principal) {
+        if (!"Admin".equals(principal.getRole())) {
+            throw new UnauthorizedException("Only admins can delete files");
+        }
+        checkBulkIds(request);
+
+        return fileService.deleteFiles(request.getIds()).thenApply(results -> bulkResponse(results, "deleted"));
     }
 
     @PostMapping("/{id}/download")
-    public ResponseEntity<StudyFile> downloadFile(@PathVariable String id,
-            @AuthenticationPrincipal UserPrincipal principal)
-            throws ExecutionException, InterruptedException {
-        fileService.incrementDownloadCount(id, principal.getRollNumber());
-        StudyFile file = fileService.getFileById(id);
-        return ResponseEntity.ok(file);
+    public CompletableFuture<ResponseEntity<StudyFile>> downloadFile(@PathVariable String id,
+            @AuthenticationPrincipal UserPrincipal principal) {
+        return fileService.getFileContent(id)
+                .thenApply(file -> ResponseEntity.ok(fileService.recordDownload(file, principal.getRollNumber())));
+    }
+
+    /**
+     * Streams the decoded file bytes chunk by chunk. Honours a single {@code Range} so that
+     * interrupted downloads can resume; malformed or multi-range headers are ignored and get the
+     * whole file. Only responses carrying the whole file are counted as downloads.
+     */
+    @GetMapping("/{id}/content")
+    public CompletableFuture<ResponseEntity<StreamingResponseBody>> streamFileContent(@PathVariable String id,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String rangeHeader,
+            @AuthenticationPrincipal UserPrincipal principal) {
+        return fileService.getFileById(id).thenCompose(file -> fileService.getManifest(file)
+                .thenApply(manifest -> buildContentResponse(file, manifest, rangeHeader, principal)));
+    }
+
+    private void checkBulkIds(BulkFileRequest request) {
+        if (request.getIds() == null || request.getIds().isEmpty()) {
+            throw new BadRequestException("ids must not be empty");
+        }
+        if (request.getIds().size() > MAX_BULK_IDS) {
+            throw new BadRequestException("At most " + MAX_BULK_IDS + " ids per request");
+        }
+        if (request.getIds().stream().anyMatch(id -> id == null || id.isBlank() || id.contains("/"))) {
+            throw new BadRequestException("Invalid file id");
+        }
+    }
+
+    private ResponseEntity<Map<String, Object>> bulkResponse(Map<String, String> results, String done) {
+        long count = results.values().stream().filter(done::equals).count();
+        Map<String, Object> response = new HashMap<>();
+        response.put("message", count + " of " + results.size() + " files " + done);
+        response.put("results", results);
+        return ResponseEntity.ok(response);
+    }
+
+    private ResponseEntity<StreamingResponseBody> buildContentResponse(StudyFile file, BlobManifest manifest,
+            String rangeHeader, UserPrincipal principal) {
+        String id = file.getId();
+        long length = manifest.getTotalSize();
+        String filename = file.getTitle() != null ? file.getTitle() : id;
+
+        long start = 0;
+        long end = length - 1;
+        boolean partial = false;
+        HttpRange range = singleRange(rangeHeader);
+        if (range != null) {
+            try {
+                start = range.getRangeStart(length);
+                end = range.getRangeEnd(length);
+            } catch (IllegalArgumentException e) {
+                start = length; // first position past the end
+            }
+            if (start > end) {
+                return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                        .header(HttpHeaders.CONTENT_RANGE, "bytes */" + length)
+                        .build();
+            }
+            partial = true;
+        }
+
+        if (start == 0 && end == length - 1) {
+            fileService.recordDownload(file, principal.getRollNumber());
+        }
+
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(partial ? HttpStatus.PARTIAL_CONTENT : HttpStatus.OK)
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .contentLength(end - start + 1)
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(filename, StandardCharsets.UTF_8).build().toString());
+        if (partial) {
+            builder.header(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+        }
+
+        long rangeStart = start;
+        long rangeEnd = end;
+        StreamingResponseBody body = out -> fileService.streamContent(file, manifest, rangeStart, rangeEnd, out);
+        return builder.body(body);
+    }
+
+    // The one range asked for, or null when the header is absent, malformed or asks for several
+    // ranges: a server may ignore Range, and multipart/byteranges is not supported
+    private static HttpRange singleRange(String rangeHeader) {
+        if (rangeHeader == null) {
+            return null;
+        }
+        try {
+            List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+            return ranges.size() == 1 ? ranges.get(0) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
     }
 }
@@ -1,5 +1,6 @@
 package com.studyboosters.controller;
 
+import com.studyboosters.dto.response.PageResponse;
 import com.studyboosters.exception.UnauthorizedException;
 import com.studyboosters.model.ActivityLog;
 import com.studyboosters.security.UserPrincipal;
@@ -9,23 +10,31 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/logs")
 @RequiredArgsConstructor
 public class LogController {
 
+    private static final int MAX_PAGE_SIZE = 200;
+
     private final ActivityLogService activityLogService;
 
     @GetMapping
-    public ResponseEntity<List<ActivityLog>> getAllLogs(@AuthenticationPrincipal UserPrincipal principal)
-            throws ExecutionException, InterruptedException {
+    public CompletableFuture<ResponseEntity<PageResponse<ActivityLog>>> getLogs(
+            @RequestParam(defaultValue = "50") int limit,
+            @RequestParam(required = false) String before,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(required = false) String action,
+            @AuthenticationPrincipal UserPrincipal principal) {
         if (!"Admin".equals(principal.getRole())) {
             throw new UnauthorizedException("Only admins can view logs");
         }
 
-        return ResponseEntity.ok(activityLogService.getAllLogs());
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        return activityLogService.getLogs(pageSize, before, after, from, to, action).thenApply(ResponseEntity::ok);
     }
 }
@@ -3,15 +3,17 @@ package com.studyboosters.controller;
 import com.studyboosters.exception.UnauthorizedException;
 import com.studyboosters.model.Settings;
 import com.studyboosters.security.UserPrincipal;
+import com.studyboosters.service.CollectionVersions;
 import com.studyboosters.service.SettingsService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/settings")
@@ -19,39 +21,40 @@ import java.util.concurrent.ExecutionException;
 public class SettingsController {
 
     private final SettingsService settingsService;
+    private final CollectionVersions collectionVersions;
 
     @GetMapping
-    public ResponseEntity<Settings> getSettings() throws ExecutionException, InterruptedException {
-        return ResponseEntity.ok(settingsService.getSettings());
+    public CompletableFuture<ResponseEntity<Settings>> getSettings(WebRequest request) {
+        return ConditionalGet.respond(request, collectionVersions.current(CollectionVersions.SETTINGS), null,
+                settingsService::getSettings);
     }
 
     @PutMapping
-    public ResponseEntity<?> updateSettings(@RequestBody Settings settings,
-            @AuthenticationPrincipal UserPrincipal principal)
-            throws ExecutionException, InterruptedException {
+    public CompletableFuture<ResponseEntity<Map<String, String>>> updateSettings(@RequestBody Settings settings,
+            @AuthenticationPrincipal UserPrincipal principal) {
         if (!"Admin".equals(principal.getRole())) {
             throw new UnauthorizedException("Only admins can update settings");
         }
 
-        settingsService.updateSettings(settings);
-
-        Map<String, String> response = new HashMap<>();
-        response.put("message", "Settings updated successfully");
-        return ResponseEntity.ok(response);
+        return settingsService.updateSettings(settings).thenApply(v -> {
+            Map<String, String> response = new HashMap<>();
+            response.put("message", "Settings updated successfully");
+            return ResponseEntity.ok(response);
+        });
     }
 
     @PostMapping("/toggle-manual-review")
-    public ResponseEntity<?> toggleManualReview(@AuthenticationPrincipal UserPrincipal principal)
-            throws ExecutionException, InterruptedException {
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> toggleManualReview(
+            @AuthenticationPrincipal UserPrincipal principal) {
         if (!"Admin".equals(principal.getRole())) {
             throw new UnauthorizedException("Only admins can toggle manual review");
         }
 
-        settingsService.toggleManualReview();
-
-        Map<String, Object> response = new HashMap<>();
-        response.put("message", "Manual review toggled successfully");
-        response.put("settings", settingsService.getSettings());
-        return ResponseEntity.ok(response);
+        return settingsService.toggleManualReview().thenApply(settings -> {
+            Map<String, Object> response = new HashMap<>();
+            response.put("message", "Manual review toggled successfully");
+            response.put("settings", settings);
+            return ResponseEntity.ok(response);
+        });
     }
 }
@@ -4,16 +4,18 @@ import com.studyboosters.dto.request.SubjectRequest;
 import com.studyboosters.exception.UnauthorizedException;
 import com.studyboosters.model.Subject;
 import com.studyboosters.security.UserPrincipal;
+import com.studyboosters.service.CollectionVersions;
 import com.studyboosters.service.SubjectService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/subjects")
@@ -21,35 +23,35 @@ import java.util.concurrent.ExecutionException;
 public class SubjectController {
 
     private final SubjectService subjectService;
+    private final CollectionVersions collectionVersions;
 
     @GetMapping
-    public ResponseEntity<List<Subject>> getAllSubjects() throws ExecutionException, InterruptedException {
-        return ResponseEntity.ok(subjectService.getAllSubjects());
+    public CompletableFuture<ResponseEntity<List<Subject>>> getAllSubjects(WebRequest request) {
+        return ConditionalGet.respond(request, collectionVersions.current(CollectionVersions.SUBJECTS), null,
+                subjectService::getAllSubjects);
     }
 
     @PostMapping
-    public ResponseEntity<Subject> addSubject(@RequestBody SubjectRequest request,
-            @AuthenticationPrincipal UserPrincipal principal)
-            throws ExecutionException, InterruptedException {
+    public CompletableFuture<ResponseEntity<Subject>> addSubject(@RequestBody SubjectRequest request,
+            @AuthenticationPrincipal UserPrincipal principal) {
         if (!"Admin".equals(principal.getRole())) {
             throw new UnauthorizedException("Only admins can add subjects");
         }
 
-        return ResponseEntity.ok(subjectService.addSubject(request.getName()));
+        return subjectService.addSubject(request.getName()).thenApply(ResponseEntity::ok);
     }
 
     @DeleteMapping("/{id}")
-    public ResponseEntity<?> deleteSubject(@PathVariable String id,
-            @AuthenticationPrincipal UserPrincipal principal)
-            throws ExecutionException, InterruptedException {
+    public CompletableFuture<ResponseEntity<Map<String, String>>> deleteSubject(@PathVariable String id,
+            @AuthenticationPrincipal UserPrincipal principal) {
         if (!"Admin".equals(principal.getRole())) {
             throw new UnauthorizedException("Only admins can delete subjects");
         }
 
-        subjectService.deleteSubject(id);
-
-        Map<String, String> response = new HashMap<>();
-        response.put("message", "Subject deleted successfully");
-        return ResponseEntity.ok(response);
+        return subjectService.deleteSubject(id).thenApply(v -> {
+            Map<String, String> response = new HashMap<>();
+            response.put("message", "Subject deleted successfully");
+            return ResponseEntity.ok(response);
+        });
     }
 }
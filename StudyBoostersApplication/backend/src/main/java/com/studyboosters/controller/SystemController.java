@@ -0,0 +1,80 @@
+package com.studyboosters.controller;
+
+import com.studyboosters.exception.UnauthorizedException;
+import com.studyboosters.security.UserPrincipal;
+import com.studyboosters.service.ActivityLogService;
+import com.studyboosters.service.FileSearchService;
+import com.studyboosters.service.FirebaseReplica;
+import com.studyboosters.service.ReadCoalescer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+@RestController
+@RequestMapping("/api/system")
+@RequiredArgsConstructor
+public class SystemController {
+
+    private final ObjectProvider<FirebaseReplica> firebaseReplica; // Absent with storage.backend=local
+    private final ObjectProvider<ReadCoalescer> readCoalescer; // Absent with storage.backend=local
+    private final ActivityLogService activityLogService;
+    private final FileSearchService fileSearchService;
+
+    @GetMapping("/replica")
+    public ResponseEntity<Map<String, Object>> getReplicaStats(@AuthenticationPrincipal UserPrincipal principal) {
+        if (!"Admin".equals(principal.getRole())) {
+            throw new UnauthorizedException("Only admins can view replica status");
+        }
+
+        FirebaseReplica replica = firebaseReplica.getIfAvailable();
+        return ResponseEntity.ok(replica != null ? replica.stats() : Map.of());
+    }
+
+    @GetMapping("/read-coalescing")
+    public ResponseEntity<Map<String, Object>> getReadCoalescingStats(@AuthenticationPrincipal UserPrincipal principal) {
+        if (!"Admin".equals(principal.getRole())) {
+            throw new UnauthorizedException("Only admins can view read coalescing status");
+        }
+
+        ReadCoalescer coalescer = readCoalescer.getIfAvailable();
+        return ResponseEntity.ok(coalescer != null ? coalescer.stats() : Map.of());
+    }
+
+    @GetMapping("/log-pipeline")
+    public ResponseEntity<Map<String, Object>> getLogPipelineStats(@AuthenticationPrincipal UserPrincipal principal) {
+        if (!"Admin".equals(principal.getRole())) {
+            throw new UnauthorizedException("Only admins can view log pipeline status");
+        }
+
+        return ResponseEntity.ok(activityLogService.stats());
+    }
+
+    @GetMapping("/search-index")
+    public ResponseEntity<Map<String, Object>> getSearchIndexStats(@AuthenticationPrincipal UserPrincipal principal) {
+        if (!"Admin".equals(principal.getRole())) {
+            throw new UnauthorizedException("Only admins can view search index status");
+        }
+
+        return ResponseEntity.ok(fileSearchService.stats());
+    }
+
+    @PostMapping("/search-index/rebuild")
+    public CompletableFuture<ResponseEntity<Map<String, String>>> rebuildSearchIndex(
+            @AuthenticationPrincipal UserPrincipal principal) {
+        if (!"Admin".equals(principal.getRole())) {
+            throw new UnauthorizedException("Only admins can rebuild the search index");
+        }
+
+        return fileSearchService.rebuild().thenApply(count -> {
+            Map<String, String> response = new HashMap<>();
+            response.put("message", "Indexed " + count + " files");
+            return ResponseEntity.ok(response);
+        });
+    }
+}
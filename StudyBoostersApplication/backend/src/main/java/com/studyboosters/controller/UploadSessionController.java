@@ -0,0 +1,65 @@
+package com.studyboosters.controller;
+
+import com.studyboosters.dto.request.UploadInitRequest;
+import com.studyboosters.model.StudyFile;
+import com.studyboosters.model.UploadSession;
+import com.studyboosters.security.UserPrincipal;
+import com.studyboosters.service.UploadSessionService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+@RestController
+@RequestMapping("/api/files/uploads")
+@RequiredArgsConstructor
+public class UploadSessionController {
+
+    private final UploadSessionService uploadSessionService;
+
+    @PostMapping
+    public CompletableFuture<ResponseEntity<UploadSession>> initUpload(@RequestBody UploadInitRequest request,
+            @AuthenticationPrincipal UserPrincipal principal) {
+        return uploadSessionService.initSession(request, principal.getUserId(), principal.getRollNumber())
+                .thenApply(ResponseEntity::ok);
+    }
+
+    @GetMapping("/{sessionId}")
+    public CompletableFuture<ResponseEntity<UploadSession>> getUpload(@PathVariable String sessionId,
+            @AuthenticationPrincipal UserPrincipal principal) {
+        return uploadSessionService.getSession(sessionId, principal.getUserId()).thenApply(ResponseEntity::ok);
+    }
+
+    @PutMapping(value = "/{sessionId}/chunks/{index}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> putChunk(@PathVariable String sessionId,
+            @PathVariable int index, @RequestBody byte[] data,
+            @AuthenticationPrincipal UserPrincipal principal) {
+        return uploadSessionService.putChunk(sessionId, index, data, principal.getUserId()).thenApply(v -> {
+            Map<String, Object> response = new HashMap<>();
+            response.put("message", "Chunk stored");
+            response.put("index", index);
+            return ResponseEntity.ok(response);
+        });
+    }
+
+    @PostMapping("/{sessionId}/commit")
+    public CompletableFuture<ResponseEntity<StudyFile>> commitUpload(@PathVariable String sessionId,
+            @AuthenticationPrincipal UserPrincipal principal) {
+        return uploadSessionService.commit(sessionId, principal.getUserId()).thenApply(ResponseEntity::ok);
+    }
+
+    @DeleteMapping("/{sessionId}")
+    public CompletableFuture<ResponseEntity<Map<String, String>>> abortUpload(@PathVariable String sessionId,
+            @AuthenticationPrincipal UserPrincipal principal) {
+        return uploadSessionService.abort(sessionId, principal.getUserId()).thenApply(v -> {
+            Map<String, String> response = new HashMap<>();
+            response.put("message", "Upload aborted");
+            return ResponseEntity.ok(response);
+        });
+    }
+}
@@ -0,0 +1,10 @@
+package com.studyboosters.dto.request;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BulkFileRequest {
+    private List<String> ids;
+}
@@ -0,0 +1,8 @@
+package com.studyboosters.dto.request;
+
+import lombok.Data;
+
+@Data
+public class DoubtAnswerRequest {
+    private String answer;
+}
@@ -0,0 +1,15 @@
+package com.studyboosters.dto.request;
+
+import lombok.Data;
+
+@Data
+public class UploadInitRequest {
+    private String title;
+    private String subject;
+    private String semester;
+    private String fileType;
+    private String fileSize;
+    private String description;
+    private String contentType;
+    private Long totalSize;
+}
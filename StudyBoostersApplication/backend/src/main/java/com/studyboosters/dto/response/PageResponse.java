@@ -0,0 +1,15 @@
+package com.studyboosters.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class PageResponse<T> {
+    private List<T> items;
+    private String nextCursor; // Next page: "before" for /api/logs, "cursor" for /api/files/search
+    private String prevCursor; // Previous page: "after" for /api/logs, "cursor" for /api/files/search
+    private boolean hasMore;
+}
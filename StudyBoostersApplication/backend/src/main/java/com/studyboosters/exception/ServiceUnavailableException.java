@@ -0,0 +1,19 @@
+package com.studyboosters.exception;
+
+/**
+ * The storage layer cannot serve the request right now; the client should retry after
+ * {@link #getRetryAfterSeconds()}.
+ */
+public class ServiceUnavailableException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public ServiceUnavailableException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
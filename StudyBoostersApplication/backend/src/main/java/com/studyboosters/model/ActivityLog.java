@@ -7,10 +7,11 @@ import lombok.AllArgsConstructor;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-public class ActivityLog {
+public class ActivityLog implements Identifiable {
     private String id;
     private String action;
     private String details;
     private Integer downloads;
     private String timestamp;
+    private String actionTimestamp; // action + "|" + timestamp, indexed for filtered queries
 }
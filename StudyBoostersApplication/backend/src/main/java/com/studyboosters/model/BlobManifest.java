@@ -0,0 +1,20 @@
+package com.studyboosters.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+/**
+ * Layout of a stored {@link FileBlob}: every chunk except the last decodes to exactly
+ * {@code chunkSize} bytes, so a byte offset maps directly to a chunk index.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BlobManifest {
+    private String contentType;
+    private Integer chunkCount;
+    private Integer chunkSize; // Decoded bytes per chunk
+    private Long totalSize; // Decoded bytes overall
+    private String encoding; // "deflate" when each chunk is stored deflated; null for plain bytes
+}
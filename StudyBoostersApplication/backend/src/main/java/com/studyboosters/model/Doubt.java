@@ -7,11 +7,15 @@ import lombok.AllArgsConstructor;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-public class Doubt {
+public class Doubt implements Identifiable {
     private String id;
+    private String studentId;
     private String studentName;
     private String subject;
     private String question;
     private String status; // Pending, Answered
     private String timestamp;
+    private String answer;
+    private String answeredBy;
+    private String answeredAt;
 }
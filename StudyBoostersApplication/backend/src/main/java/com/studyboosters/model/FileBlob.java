@@ -0,0 +1,21 @@
+package com.studyboosters.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.util.List;
+
+/**
+ * Binary payload of a {@link StudyFile}, stored once per distinct content under
+ * {@code content_blobs/{sha256}} (legacy uploads: {@code file_blobs/{fileId}}) so that
+ * metadata listings never transfer file contents.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FileBlob {
+    private String fileBlobData; // Base64 encoded file data (legacy, unchunked uploads)
+    private List<String> fileChunks; // Plain base64, one entry per manifest chunk
+    private BlobManifest manifest; // Absent on payloads written before chunk normalisation
+    private Long refCount; // Files referencing a content blob, -1 while it is being deleted; unused on legacy per-file blobs
+}
@@ -0,0 +1,11 @@
+package com.studyboosters.model;
+
+/**
+ * A model stored under its own key; the key is assigned as the id when it is read.
+ */
+public interface Identifiable {
+
+    String getId();
+
+    void setId(String id);
+}
@@ -7,7 +7,7 @@ import lombok.AllArgsConstructor;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-public class MentorRequest {
+public class MentorRequest implements Identifiable {
     private String id;
     private String rollNumber;
     private String expertise;
@@ -8,7 +8,7 @@ import java.util.List;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-public class StudyFile {
+public class StudyFile implements Identifiable {
     private String id;
     private String title;
     private String subject;
@@ -21,6 +21,13 @@ public class StudyFile {
     private Integer downloadCount;
     private String description;
     private String status; // Pending, Approved, Rejected
+    // Content only travels on upload/download; it is persisted separately as a FileBlob
     private String fileBlobData; // Base64 encoded file data
     private List<String> fileChunks; // For large files split into chunks
+    private String contentHash; // SHA-256 of the content, shared under content_blobs; null for legacy per-file blobs
+    // Composite sort keys ("status|..."), indexed so filtered listings run as ordered queries
+    private String statusUploadDate;
+    private String statusTitle;
+    private String statusSubjectUploadDate;
+    private String titleKey; // Lowercase title, so the unfiltered title sort ignores case like statusTitle
 }
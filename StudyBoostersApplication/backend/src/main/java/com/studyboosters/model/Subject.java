@@ -7,7 +7,7 @@ import lombok.AllArgsConstructor;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-public class Subject {
+public class Subject implements Identifiable {
     private String id;
     private String name;
 }
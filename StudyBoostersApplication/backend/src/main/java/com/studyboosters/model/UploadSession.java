@@ -0,0 +1,30 @@
+package com.studyboosters.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadSession implements Identifiable {
+    private String id;
+    private String fileId; // Reserved up front so chunks can be written straight to file_blobs
+    private String uploaderId;
+    private String uploader;
+    private String title;
+    private String subject;
+    private String semester;
+    private String fileType;
+    private String fileSize;
+    private String description;
+    private String contentType;
+    private Long totalSize;
+    private Integer chunkSize;
+    private Integer chunkCount;
+    private Map<String, Boolean> received; // "c<index>" keys so Firebase never coerces this into a list
+    private String createdAt;
+    private Long expiresAt; // Epoch millis; pushed forward by every chunk, swept once passed
+    private String state; // Null while open; "committing" once a commit has claimed the session
+}
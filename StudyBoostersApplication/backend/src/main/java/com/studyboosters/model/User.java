@@ -7,7 +7,7 @@ import lombok.AllArgsConstructor;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-public class User {
+public class User implements Identifiable {
     private String id;
     private String rollNumber;
     private String role; // Student, Admin, Mentor
@@ -29,19 +29,17 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         try {
             String jwt = getJwtFromRequest(request);
 
-            if (StringUtils.hasText(jwt) && tokenProvider.validateToken(jwt)) {
-                String userId = tokenProvider.getUserIdFromToken(jwt);
-                String rollNumber = tokenProvider.getRollNumberFromToken(jwt);
-                String role = tokenProvider.getRoleFromToken(jwt);
-
-                UserPrincipal userPrincipal = new UserPrincipal(userId, rollNumber, role);
-
-                SimpleGrantedAuthority authority = new SimpleGrantedAuthority("ROLE_" + role.toUpperCase());
-                UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
-                        userPrincipal, null, Collections.singletonList(authority));
-
-                authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                SecurityContextHolder.getContext().setAuthentication(authentication);
+            if (StringUtils.hasText(jwt)) {
+                // Single parse (or cache hit) yields the whole principal
+                tokenProvider.verify(jwt).ifPresent(userPrincipal -> {
+                    SimpleGrantedAuthority authority = new SimpleGrantedAuthority(
+                            "ROLE_" + userPrincipal.getRole().toUpperCase());
+                    UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
+                            userPrincipal, null, Collections.singletonList(authority));
+
+                    authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                    SecurityContextHolder.getContext().setAuthentication(authentication);
+                });
             }
         } catch (Exception ex) {
             logger.error("Could not set user authentication in security context", ex);
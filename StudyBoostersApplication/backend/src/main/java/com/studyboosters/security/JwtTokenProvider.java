@@ -2,24 +2,64 @@ package com.studyboosters.security;
 
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
+@Slf4j
 @Component
+@RequiredArgsConstructor
 public class JwtTokenProvider {
 
+    private final MeterRegistry meterRegistry;
+
     @Value("${jwt.secret}")
     private String jwtSecret;
 
     @Value("${jwt.expiration}")
     private long jwtExpiration;
 
-    private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
+    @Value("${jwt.cache.size:10000}")
+    private int cacheSize;
+
+    // Built once; both are immutable and thread-safe
+    private SecretKey signingKey;
+    private JwtParser parser;
+
+    // Recently verified tokens, so repeat requests skip signature verification
+    private Map<String, VerifiedToken> verifiedTokens;
+
+    // jwt.verify timers by result: cached, verified or rejected
+    private Timer cachedTimer;
+    private Timer verifiedTimer;
+    private Timer rejectedTimer;
+
+    @PostConstruct
+    public void init() {
+        signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
+        parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+        verifiedTokens = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, VerifiedToken> eldest) {
+                return size() > cacheSize;
+            }
+        });
+        cachedTimer = Timer.builder("jwt.verify").tag("result", "cached").register(meterRegistry);
+        verifiedTimer = Timer.builder("jwt.verify").tag("result", "verified").register(meterRegistry);
+        rejectedTimer = Timer.builder("jwt.verify").tag("result", "rejected").register(meterRegistry);
     }
 
     public String generateToken(String userId, String rollNumber, String role) {
@@ -32,50 +72,65 @@ public class JwtTokenProvider {
                 .claim("role", role)
                 .setIssuedAt(now)
                 .setExpiration(expiryDate)
-                .signWith(getSigningKey(), SignatureAlgorithm.HS512)
+                .signWith(signingKey, SignatureAlgorithm.HS512)
                 .compact();
     }
 
-    public String getUserIdFromToken(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    /**
+     * Verifies the token once and returns its principal, or empty if it is invalid or expired.
+     * Verified tokens are cached until they expire, so repeat tokens cost a map lookup.
+     */
+    public Optional<UserPrincipal> verify(String token) {
+        long start = System.nanoTime();
+        VerifiedToken cached = verifiedTokens.get(token);
+        if (cached != null) {
+            if (cached.expiresAt > System.currentTimeMillis()) {
+                cachedTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                return Optional.of(cached.principal);
+            }
+            verifiedTokens.remove(token);
+            rejectedTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return Optional.empty();
+        }
+
+        try {
+            Claims claims = parser.parseClaimsJws(token).getBody();
+            UserPrincipal principal = new UserPrincipal(claims.getSubject(),
+                    claims.get("rollNumber", String.class), claims.get("role", String.class));
+            long expiresAt = claims.getExpiration() != null ? claims.getExpiration().getTime() : Long.MAX_VALUE;
+            verifiedTokens.put(token, new VerifiedToken(principal, expiresAt));
+            verifiedTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return Optional.of(principal);
+        } catch (JwtException | IllegalArgumentException e) {
+            rejectedTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            log.debug("JWT validation failed: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
 
-        return claims.getSubject();
+    public String getUserIdFromToken(String token) {
+        return parser.parseClaimsJws(token).getBody().getSubject();
     }
 
     public String getRollNumberFromToken(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-
-        return claims.get("rollNumber", String.class);
+        return parser.parseClaimsJws(token).getBody().get("rollNumber", String.class);
     }
 
     public String getRoleFromToken(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-
-        return claims.get("role", String.class);
+        return parser.parseClaimsJws(token).getBody().get("role", String.class);
     }
 
     public boolean validateToken(String token) {
-        try {
-            Jwts.parserBuilder()
-                    .setSigningKey(getSigningKey())
-                    .build()
-                    .parseClaimsJws(token);
-            return true;
-        } catch (JwtException | IllegalArgumentException e) {
-            System.err.println("JWT validation failed: " + e.getMessage());
-            return false;
+        return verify(token).isPresent();
+    }
+
+    private static final class VerifiedToken {
+        private final UserPrincipal principal;
+        private final long expiresAt;
+
+        private VerifiedToken(UserPrincipal principal, long expiresAt) {
+            this.principal = principal;
+            this.expiresAt = expiresAt;
         }
     }
 }
@@ -1,41 +1,279 @@
 package com.studyboosters.service;
 
+import com.studyboosters.dto.response.PageResponse;
+import com.studyboosters.exception.BadRequestException;
 import com.studyboosters.model.ActivityLog;
+import com.studyboosters.store.DataStore;
+import com.studyboosters.store.StoreQuery;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.concurrent.ExecutionException;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Activity logging through a bounded in-memory queue. Callers only pay for an enqueue; a
+ * background writer drains the queue and persists each batch with a single multi-path update.
+ */
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class ActivityLogService {
 
-    private final FirebaseService firebaseService;
+    static final String LOGS_PATH = "logs";
 
-    public void addLog(String action, String details) throws ExecutionException, InterruptedException {
-        addLog(action, details, 0);
+    private final DataStore dataStore;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${activity-log.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${activity-log.batch-size:200}")
+    private int batchSize;
+
+    @Value("${activity-log.linger-ms:250}")
+    private long lingerMs;
+
+    // "drop" discards new entries when the queue is full, "block" waits up to block-timeout-ms first
+    @Value("${activity-log.queue-full-policy:drop}")
+    private String queueFullPolicy;
+
+    @Value("${activity-log.block-timeout-ms:50}")
+    private long blockTimeoutMs;
+
+    private BlockingQueue<ActivityLog> queue;
+    private Thread writer;
+    private volatile boolean running;
+
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    @PostConstruct
+    public void start() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        running = true;
+        writer = new Thread(this::drainLoop, "activity-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+
+        Gauge.builder("activity_log.queued", queue, BlockingQueue::size).register(meterRegistry);
+        FunctionCounter.builder("activity_log.entries", enqueued, AtomicLong::get).tag("result", "enqueued")
+                .register(meterRegistry);
+        FunctionCounter.builder("activity_log.entries", dropped, AtomicLong::get).tag("result", "dropped")
+                .register(meterRegistry);
+        FunctionCounter.builder("activity_log.entries", written, AtomicLong::get).tag("result", "written")
+                .register(meterRegistry);
+        FunctionCounter.builder("activity_log.entries", failed, AtomicLong::get).tag("result", "failed")
+                .register(meterRegistry);
     }
 
-    public void addLog(String action, String details, Integer downloads)
-            throws ExecutionException, InterruptedException {
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        // The writer keeps draining until the queue is empty once running is cleared
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    public CompletableFuture<Void> addLog(String action, String details) {
+        return addLog(action, details, 0);
+    }
+
+    /**
+     * Queues an entry for the background writer. Logging is best effort: the returned future is
+     * already complete, and a full queue drops the entry rather than failing the caller.
+     */
+    public CompletableFuture<Void> addLog(String action, String details, Integer downloads) {
+        ActivityLog log = newLog(action, details, downloads);
+        if (offer(log)) {
+            enqueued.incrementAndGet();
+        } else {
+            dropped.incrementAndGet();
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Adds an entry to the caller's multi-path update instead of the queue, so it is written
+     * atomically with the change it records.
+     */
+    public void stageLog(Map<String, Object> updates, String action, String details, Integer downloads) {
+        updates.put(LOGS_PATH + "/" + dataStore.newKey(LOGS_PATH), newLog(action, details, downloads));
+    }
+
+    public CompletableFuture<List<ActivityLog>> getAllLogs() {
+        return dataStore.getList(LOGS_PATH, ActivityLog.class);
+    }
+
+    /**
+     * Newest-first page of logs, optionally limited to an action and/or a timestamp range
+     * ({@code to} is an inclusive prefix, so a date covers the whole day). Filtering, ordering
+     * and limiting all run in the store; page cost does not depend on the size of the log.
+     */
+    public CompletableFuture<PageResponse<ActivityLog>> getLogs(int limit, String before, String after,
+            String from, String to, String action) {
+        if (before != null && after != null) {
+            throw new BadRequestException("Use either before or after, not both");
+        }
+
+        // Entries logged before actionTimestamp existed only appear in unfiltered queries
+        boolean byAction = action != null && !action.isBlank();
+        String orderBy = byAction ? "actionTimestamp" : "timestamp";
+        String prefix = byAction ? action + "|" : "";
+        String lower = prefix + (from != null ? from : "");
+        String upper = prefix + (to != null ? to : "") + "\uf8ff";
+
+        String cursor = before != null ? before : after;
+        String cursorKey = null;
+        String cursorValue = null;
+        if (cursor != null) {
+            int separator = cursor.indexOf('~');
+            if (separator < 0) {
+                throw new BadRequestException("Invalid cursor");
+            }
+            cursorKey = cursor.substring(0, separator);
+            cursorValue = prefix + cursor.substring(separator + 1);
+        }
+
+        // Bounds are inclusive, so fetch one extra to skip the cursor entry and one to detect more
+        int fetch = limit + (cursor != null ? 2 : 1);
+        StoreQuery query = StoreQuery.orderByChild(orderBy);
+        if (after != null) {
+            query.startAt(cursorValue, cursorKey).endAt(upper).limitToFirst(fetch);
+        } else if (before != null) {
+            query.startAt(lower).endAt(cursorValue, cursorKey).limitToLast(fetch);
+        } else {
+            query.startAt(lower).endAt(upper).limitToLast(fetch);
+        }
+
+        String skipKey = cursorKey;
+        return dataStore.query(LOGS_PATH, query, ActivityLog.class).thenApply(logs -> {
+            logs.removeIf(log -> log.getId().equals(skipKey));
+            boolean hasMore = logs.size() > limit;
+            List<ActivityLog> page;
+            if (after != null) {
+                // Ascending from the cursor: keep the entries closest to it
+                page = new ArrayList<>(logs.subList(0, Math.min(limit, logs.size())));
+            } else {
+                page = new ArrayList<>(logs.subList(Math.max(0, logs.size() - limit), logs.size()));
+            }
+            Collections.reverse(page);
+
+            String newest = page.isEmpty() ? null : cursorOf(page.get(0));
+            String oldest = page.isEmpty() ? null : cursorOf(page.get(page.size() - 1));
+            if (after != null) {
+                return new PageResponse<>(page, oldest, hasMore ? newest : null, hasMore);
+            }
+            return new PageResponse<>(page, hasMore ? oldest : null, newest, hasMore);
+        });
+    }
+
+    private String cursorOf(ActivityLog log) {
+        // Push keys never contain '~'
+        return log.getId() + "~" + log.getTimestamp();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("queued", queue.size());
+        stats.put("capacity", queueCapacity);
+        stats.put("enqueued", enqueued.get());
+        stats.put("dropped", dropped.get());
+        stats.put("written", written.get());
+        stats.put("failed", failed.get());
+        return stats;
+    }
+
+    private boolean offer(ActivityLog log) {
+        if (!"block".equalsIgnoreCase(queueFullPolicy)) {
+            return queue.offer(log);
+        }
+        // Bounded wait: callers may be running on the Firebase event thread, which the writer needs
         try {
-            ActivityLog log = new ActivityLog();
-            log.setAction(action);
-            log.setDetails(details != null ? details : "");
-            log.setDownloads(downloads != null ? downloads : 0);
-            log.setTimestamp(getCurrentTimestamp());
+            return queue.offer(log, blockTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
 
-            firebaseService.push("logs", log);
+    private void drainLoop() {
+        List<ActivityLog> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                ActivityLog first = queue.poll(lingerMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                // Linger briefly so bursts are written together
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMs);
+                while (batch.size() < batchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    ActivityLog next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                writeBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void writeBatch(List<ActivityLog> batch) {
+        Map<String, Object> updates = new HashMap<>();
+        for (ActivityLog log : batch) {
+            // Push keys are chronological, so entries keep their enqueue order
+            updates.put(LOGS_PATH + "/" + dataStore.newKey(LOGS_PATH), log);
+        }
+
+        try {
+            dataStore.updateChildren(updates).get(30, TimeUnit.SECONDS);
+            written.addAndGet(batch.size());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failed.addAndGet(batch.size());
         } catch (Exception e) {
-            System.err.println("Failed to add log: " + e.getMessage());
+            failed.addAndGet(batch.size());
+            log.warn("Failed to write {} logs: {}", batch.size(), e.getMessage());
         }
     }
 
-    public List<ActivityLog> getAllLogs() throws ExecutionException, InterruptedException {
-        return firebaseService.getList("logs", ActivityLog.class);
+    private ActivityLog newLog(String action, String details, Integer downloads) {
+        ActivityLog log = new ActivityLog();
+        log.setAction(action);
+        log.setDetails(details != null ? details : "");
+        log.setDownloads(downloads != null ? downloads : 0);
+        log.setTimestamp(getCurrentTimestamp());
+        log.setActionTimestamp(log.getAction() + "|" + log.getTimestamp());
+        return log;
     }
 
     private String getCurrentTimestamp() {
@@ -1,75 +1,166 @@
 package com.studyboosters.service;
 
+import com.studyboosters.exception.BadRequestException;
+import com.studyboosters.exception.ResourceNotFoundException;
 import com.studyboosters.model.User;
 import com.studyboosters.security.JwtTokenProvider;
+import com.studyboosters.store.DataStore;
+import com.studyboosters.store.StoreQuery;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @Service
 @RequiredArgsConstructor
 public class AuthService {
 
-    private final FirebaseService firebaseService;
+    static final String USERS_PATH = "users";
+    static final String ROLL_INDEX_PATH = "users_by_roll";
+
+    private final DataStore dataStore;
     private final JwtTokenProvider jwtTokenProvider;
     private final ActivityLogService activityLogService;
 
-    public Map<String, Object> login(String rollNumber) throws ExecutionException, InterruptedException {
-        // Check if user exists
-        User user = getUserByRollNumber(rollNumber);
-
-        if (user == null) {
-            // Create new user
-            user = createUser(rollNumber);
-            activityLogService.addLog("System Access: " + rollNumber, "Role assigned: " + user.getRole());
-        } else {
-            // Update last login
-            Map<String, Object> updates = new HashMap<>();
-            updates.put("lastLogin", getCurrentTimestamp());
-            firebaseService.update("users", user.getId(), updates);
-            user.setLastLogin(getCurrentTimestamp());
-            activityLogService.addLog("System Access: " + rollNumber, "User logged in");
-        }
-
-        // Generate JWT token
-        String token = jwtTokenProvider.generateToken(user.getId(), user.getRollNumber(), user.getRole());
+    @Value("${auth.users.cache-size:10000}")
+    private int cacheSize;
 
-        Map<String, Object> response = new HashMap<>();
-        response.put("token", token);
-        response.put("user", user);
+    // Roll number -> user id for recent logins; the mapping never changes once created
+    private Map<String, String> userIdsByRoll;
 
-        return response;
+    @PostConstruct
+    public void init() {
+        userIdsByRoll = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > cacheSize;
+            }
+        });
     }
 
-    public User promoteToAdmin(String userId) throws ExecutionException, InterruptedException {
-        User user = firebaseService.getById("users", userId, User.class);
+    public CompletableFuture<Map<String, Object>> login(String rollNumber) {
+        // A blank key would address the whole users_by_roll node
+        if (rollNumber == null || rollNumber.isBlank()) {
+            throw new BadRequestException("rollNumber is required");
+        }
 
-        Map<String, Object> updates = new HashMap<>();
-        updates.put("role", "Admin");
-        firebaseService.update("users", userId, updates);
+        // Check if user exists
+        return getUserByRollNumber(rollNumber)
+                .thenCompose(existing -> {
+                    if (existing == null) {
+                        // Create new user
+                        return createUser(rollNumber).thenCompose(user -> activityLogService
+                                .addLog("System Access: " + rollNumber, "Role assigned: " + user.getRole())
+                                .thenApply(v -> user));
+                    }
+
+                    // Update last login
+                    String lastLogin = getCurrentTimestamp();
+                    Map<String, Object> updates = new HashMap<>();
+                    updates.put("lastLogin", lastLogin);
+                    return dataStore.update(USERS_PATH, existing.getId(), updates)
+                            .thenCompose(v -> {
+                                existing.setLastLogin(lastLogin);
+                                return activityLogService.addLog("System Access: " + rollNumber, "User logged in");
+                            })
+                            .thenApply(v -> existing);
+                })
+                .thenApply(user -> {
+                    // Generate JWT token
+                    String token = jwtTokenProvider.generateToken(user.getId(), user.getRollNumber(), user.getRole());
+
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("token", token);
+                    response.put("user", user);
+                    return response;
+                });
+    }
 
-        user.setRole("Admin");
-        activityLogService.addLog("Privilege Escalation", "User " + user.getRollNumber() + " granted Admin control");
+    public CompletableFuture<User> promoteToAdmin(String userId) {
+        return dataStore.getById(USERS_PATH, userId, User.class).thenCompose(user -> {
+            Map<String, Object> updates = new HashMap<>();
+            updates.put("role", "Admin");
+
+            return dataStore.update(USERS_PATH, userId, updates)
+                    .thenCompose(v -> {
+                        user.setRole("Admin");
+                        return activityLogService.addLog("Privilege Escalation",
+                                "User " + user.getRollNumber() + " granted Admin control");
+                    })
+                    .thenApply(v -> user);
+        });
+    }
+
+    /**
+     * O(1) lookup through the {@code users_by_roll} index, with the id mapping cached in-process.
+     * Users the index does not know yet (created before it, and not backfilled) are found with an
+     * indexed query on {@code rollNumber}, and their entry is written then.
+     */
+    private CompletableFuture<User> getUserByRollNumber(String rollNumber) {
+        String cachedId = userIdsByRoll.get(rollNumber);
+        CompletableFuture<String> userId = cachedId != null
+                ? CompletableFuture.completedFuture(cachedId)
+                : dataStore.getValue(ROLL_INDEX_PATH + "/" + rollKey(rollNumber), String.class);
+
+        return userId.thenCompose(id -> {
+            if (id == null) {
+                return findUnindexed(rollNumber, null);
+            }
+            return dataStore.getById(USERS_PATH, id, User.class).handle((user, e) -> {
+                if (e == null) {
+                    userIdsByRoll.put(rollNumber, id);
+                    return CompletableFuture.completedFuture(user);
+                }
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                if (cause instanceof ResourceNotFoundException) {
+                    // Stale index entry
+                    userIdsByRoll.remove(rollNumber);
+                    return findUnindexed(rollNumber, id);
+                }
+                throw new CompletionException(cause);
+            }).thenCompose(user -> user);
+        });
+    }
 
-        return user;
+    // Oldest user record with this roll number, if any; points the index entry (absent or the stale
+    // staleId) at it. A concurrent login that already indexed another record wins.
+    private CompletableFuture<User> findUnindexed(String rollNumber, String staleId) {
+        StoreQuery query = StoreQuery.orderByChild("rollNumber").equalTo(rollNumber).limitToFirst(1);
+        return dataStore.query(USERS_PATH, query, User.class).thenCompose(users -> {
+            if (users.isEmpty()) {
+                return CompletableFuture.completedFuture(null);
+            }
+            User user = users.get(0);
+            return claimIndex(rollNumber, user.getId(), staleId).thenCompose(indexedId -> indexedId.equals(user.getId())
+                    ? CompletableFuture.completedFuture(user)
+                    : dataStore.getById(USERS_PATH, indexedId, User.class));
+        });
     }
 
-    private User getUserByRollNumber(String rollNumber) throws ExecutionException, InterruptedException {
-        // Firebase doesn't support queries in the same way, so we fetch all and filter
-        // In production, you might want to structure data differently or add indexes
-        java.util.List<User> users = firebaseService.getList("users", User.class);
-        return users.stream()
-                .filter(u -> u.getRollNumber().equals(rollNumber))
-                .findFirst()
-                .orElse(null);
+    // Points the index entry at userId unless it already holds another live id; returns the id it holds
+    private CompletableFuture<String> claimIndex(String rollNumber, String userId, String staleId) {
+        String path = ROLL_INDEX_PATH + "/" + rollKey(rollNumber);
+        return dataStore.transaction(path, String.class,
+                        current -> current == null || current.equals(staleId) ? userId : current)
+                .thenCompose(changed -> changed
+                        ? CompletableFuture.completedFuture(userId)
+                        : dataStore.getValue(path, String.class))
+                .thenApply(indexedId -> {
+                    userIdsByRoll.put(rollNumber, indexedId);
+                    return indexedId;
+                });
     }
 
-    private User createUser(String rollNumber) throws ExecutionException, InterruptedException {
+    private CompletableFuture<User> createUser(String rollNumber) {
         String role = rollNumber.toUpperCase().contains("ADMIN") ? "Admin" : "Student";
 
         User user = new User();
@@ -78,10 +169,53 @@ public class AuthService {
         user.setCreatedAt(getCurrentTimestamp());
         user.setLastLogin(getCurrentTimestamp());
 
-        String userId = firebaseService.push("users", user);
-        user.setId(userId);
+        // The record is written before the index entry points at it; of concurrent first logins only
+        // one claims the entry, and the others drop their record and use the winner's
+        String userId = dataStore.newKey(USERS_PATH);
+        return dataStore.setValue(USERS_PATH + "/" + userId, user)
+                .thenCompose(v -> claimIndex(rollNumber, userId, null))
+                .thenCompose(indexedId -> {
+                    if (indexedId.equals(userId)) {
+                        user.setId(userId);
+                        return CompletableFuture.completedFuture(user);
+                    }
+                    return dataStore.delete(USERS_PATH, userId)
+                            .thenCompose(v -> dataStore.getById(USERS_PATH, indexedId, User.class));
+                });
+    }
+
+    /**
+     * Writes index entries for users created before the roll-number index existed.
+     * Reads the whole user list once, so it is meant to run a single time after upgrading.
+     */
+    public CompletableFuture<Integer> backfillRollIndex() {
+        return dataStore.getList(USERS_PATH, User.class).thenCompose(users -> {
+            Map<String, Object> updates = new HashMap<>();
+            for (User user : users) {
+                if (user.getRollNumber() != null) {
+                    updates.put(ROLL_INDEX_PATH + "/" + rollKey(user.getRollNumber()), user.getId());
+                }
+            }
+            if (updates.isEmpty()) {
+                return CompletableFuture.completedFuture(0);
+            }
+            return dataStore.updateChildren(updates).thenApply(v -> updates.size());
+        });
+    }
 
-        return user;
+    /**
+     * Firebase keys may not contain '.', '#', '$', '[', ']' or '/', so those are percent-encoded.
+     */
+    static String rollKey(String rollNumber) {
+        StringBuilder key = new StringBuilder(rollNumber.length());
+        for (char c : rollNumber.toCharArray()) {
+            if (c == '.' || c == '#' || c == '$' || c == '[' || c == ']' || c == '/' || c == '%') {
+                key.append('%').append(String.format("%02X", (int) c));
+            } else {
+                key.append(c);
+            }
+        }
+        return key.toString();
     }
 
     private String getCurrentTimestamp() {
@@ -0,0 +1,195 @@
+package com.studyboosters.service;
+
+import com.studyboosters.exception.BadRequestException;
+import com.studyboosters.model.BlobManifest;
+import com.studyboosters.model.FileBlob;
+
+import java.io.ByteArrayOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Converts client payloads (a data URL, optionally split at arbitrary character offsets)
+ * into fixed-size, independently decodable base64 chunks described by a {@link BlobManifest}.
+ */
+final class BlobChunks {
+
+    static final String DEFAULT_CONTENT_TYPE = "application/octet-stream";
+    static final String DEFLATE = "deflate";
+
+    // Deflated chunks are only kept when they save at least this share of the bytes
+    private static final double MIN_SAVING = 0.1;
+
+    private BlobChunks() {
+    }
+
+    static FileBlob normalize(String fileBlobData, List<String> fileChunks, int chunkSize) {
+        Payload payload = decode(fileBlobData, fileChunks);
+        return split(payload.bytes, payload.contentType, chunkSize);
+    }
+
+    static Payload decode(String fileBlobData, List<String> fileChunks) {
+        String encoded = fileChunks != null && !fileChunks.isEmpty() ? String.join("", fileChunks) : fileBlobData;
+        if (encoded == null || encoded.isEmpty()) {
+            throw new BadRequestException("File content is missing");
+        }
+
+        String contentType = DEFAULT_CONTENT_TYPE;
+        if (encoded.startsWith("data:")) {
+            int comma = encoded.indexOf(',');
+            if (comma < 0) {
+                throw new BadRequestException("File content is not a valid data URL");
+            }
+            String header = encoded.substring(5, comma);
+            int semicolon = header.indexOf(';');
+            String type = semicolon >= 0 ? header.substring(0, semicolon) : header;
+            if (!type.isEmpty()) {
+                contentType = type;
+            }
+            encoded = encoded.substring(comma + 1);
+        }
+
+        try {
+            return new Payload(Base64.getDecoder().decode(encoded), contentType);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("File content is not valid base64");
+        }
+    }
+
+    /**
+     * Multiples of 3 bytes encode without padding, so aligned chunks also concatenate into valid base64.
+     */
+    static int alignedChunkSize(int chunkSize) {
+        return Math.max(3, chunkSize - chunkSize % 3);
+    }
+
+    static FileBlob split(byte[] bytes, String contentType, int chunkSize) {
+        int alignedSize = alignedChunkSize(chunkSize);
+
+        List<String> chunks = new ArrayList<>();
+        for (int offset = 0; offset < bytes.length; offset += alignedSize) {
+            int end = Math.min(bytes.length, offset + alignedSize);
+            chunks.add(Base64.getEncoder().encodeToString(Arrays.copyOfRange(bytes, offset, end)));
+        }
+
+        BlobManifest manifest = new BlobManifest(contentType, chunks.size(), alignedSize, (long) bytes.length, null);
+        return new FileBlob(null, chunks, manifest, null);
+    }
+
+    /**
+     * Like {@link #split}, but deflates every chunk when that shrinks the payload enough to be worth
+     * inflating on each read. Chunks stay independently decodable, so ranges still map to chunks.
+     */
+    static FileBlob pack(byte[] bytes, String contentType, int chunkSize) {
+        int alignedSize = alignedChunkSize(chunkSize);
+
+        List<byte[]> deflated = new ArrayList<>();
+        long deflatedSize = 0;
+        for (int offset = 0; offset < bytes.length; offset += alignedSize) {
+            byte[] chunk = deflate(bytes, offset, Math.min(bytes.length, offset + alignedSize));
+            deflated.add(chunk);
+            deflatedSize += chunk.length;
+        }
+        if (!worthDeflating(deflatedSize, bytes.length)) {
+            return split(bytes, contentType, chunkSize);
+        }
+
+        List<String> chunks = new ArrayList<>(deflated.size());
+        for (byte[] chunk : deflated) {
+            chunks.add(Base64.getEncoder().encodeToString(chunk));
+        }
+        BlobManifest manifest = new BlobManifest(contentType, chunks.size(), alignedSize, (long) bytes.length, DEFLATE);
+        return new FileBlob(null, chunks, manifest, null);
+    }
+
+    static boolean worthDeflating(long deflatedSize, long size) {
+        return deflatedSize <= size * (1 - MIN_SAVING);
+    }
+
+    /**
+     * Decoded bytes of a stored chunk.
+     */
+    static byte[] decodeChunk(String chunk, BlobManifest manifest) {
+        byte[] stored = Base64.getDecoder().decode(chunk);
+        return DEFLATE.equals(manifest.getEncoding()) ? inflate(stored) : stored;
+    }
+
+    /**
+     * The stored chunk for {@code bytes}, deflated or not as the manifest says.
+     */
+    static String encodeChunk(byte[] bytes, String encoding) {
+        byte[] stored = DEFLATE.equals(encoding) ? deflate(bytes, 0, bytes.length) : bytes;
+        return Base64.getEncoder().encodeToString(stored);
+    }
+
+    static byte[] deflate(byte[] bytes, int from, int to) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            deflater.setInput(bytes, from, to - from);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, (to - from) / 2));
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] bytes) {
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(bytes);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length * 2);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int read = inflater.inflate(buffer);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalStateException("Stored chunk is truncated");
+                }
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Stored chunk is corrupt", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    static String hex(byte[] digest) {
+        return HexFormat.of().formatHex(digest);
+    }
+
+    static String dataUrlPrefix(String contentType) {
+        return "data:" + contentType + ";base64,";
+    }
+
+    static final class Payload {
+        final byte[] bytes;
+        final String contentType;
+
+        private Payload(byte[] bytes, String contentType) {
+            this.bytes = bytes;
+            this.contentType = contentType;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.studyboosters.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-collection version stamps, bumped by the services after every write. They drive the
+ * {@code ETag}/{@code Last-Modified} headers of read-mostly endpoints, so a poll that finds
+ * nothing changed is answered with a 304 before anything is read. Stamps live in this process:
+ * writes that bypass the backend are not seen.
+ */
+@Component
+public class CollectionVersions {
+
+    public static final String FILES = "files";
+    public static final String SUBJECTS = "subjects";
+    public static final String SETTINGS = "settings";
+
+    // Keeps tags from an earlier run of the server from matching this one
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final long startedAt = seconds(System.currentTimeMillis());
+    private final Map<String, Stamp> stamps = new ConcurrentHashMap<>();
+
+    public void bump(String collection) {
+        stamps.compute(collection, (name, current) -> current == null
+                ? new Stamp(name, 1, Math.max(seconds(System.currentTimeMillis()), startedAt + 1000))
+                // HTTP dates have second precision, so every bump moves Last-Modified by at least a second
+                : new Stamp(name, current.version + 1,
+                        Math.max(seconds(System.currentTimeMillis()), current.lastModified + 1000)));
+    }
+
+    public Stamp current(String collection) {
+        return stamps.computeIfAbsent(collection, name -> new Stamp(name, 0, startedAt));
+    }
+
+    private static long seconds(long millis) {
+        return millis - millis % 1000;
+    }
+
+    public final class Stamp {
+        private final String collection;
+        private final long version;
+        private final long lastModified;
+
+        private Stamp(String collection, long version, long lastModified) {
+            this.collection = collection;
+            this.version = version;
+            this.lastModified = lastModified;
+        }
+
+        /**
+         * Strong tag for one representation of the collection; {@code variant} names everything
+         * besides the data that shapes the body (query parameters, role).
+         */
+        public String etag(String variant) {
+            String tag = collection + "-" + epoch + "-" + version;
+            if (variant != null && !variant.isEmpty()) {
+                tag += "-" + Integer.toHexString(variant.hashCode());
+            }
+            return "\"" + tag + "\"";
+        }
+
+        public long lastModified() {
+            return lastModified;
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.studyboosters.service;
+
+import com.studyboosters.exception.BadRequestException;
+import com.studyboosters.exception.ServiceUnavailableException;
+import com.studyboosters.model.BlobManifest;
+import com.studyboosters.model.FileBlob;
+import com.studyboosters.store.DataStore;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed payload storage. Each distinct content is stored once under
+ * {@code content_blobs/{sha256}} with a {@code refCount} of the files that point at it, deflated
+ * when that saves enough. A blob's manifest is only written together with a file that references
+ * it, so a blob that can be found is always complete.
+ * <p>
+ * {@code refCount} is also the lock between adding and releasing: references are claimed with a
+ * transaction before the file is published, and a release first swaps a count of zero for
+ * {@code -1} in a transaction, which no claim gets past, before it deletes the blob. A release
+ * interrupted between the two leaves the tombstone; the next upload of that content finishes it.
+ * A publish that fails after its claim leaves the reference behind, which only keeps the blob.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ContentBlobService {
+
+    static final String CONTENT_PATH = "content_blobs";
+
+    private static final Pattern SHA256_HEX = Pattern.compile("[0-9a-f]{64}");
+    private static final long RELEASING = -1;
+
+    private final DataStore dataStore;
+
+    @Value("${storage.files.chunk-size-bytes:786432}")
+    private int chunkSizeBytes;
+
+    static String path(String hash) {
+        return CONTENT_PATH + "/" + hash;
+    }
+
+    static void checkHash(String hash) {
+        if (hash == null || !SHA256_HEX.matcher(hash).matches()) {
+            throw new BadRequestException("contentHash must be a lowercase hex SHA-256");
+        }
+    }
+
+    /**
+     * Manifest of the stored content with this hash, or null if there is none.
+     */
+    public CompletableFuture<BlobManifest> find(String hash) {
+        checkHash(hash);
+        return dataStore.getValue(path(hash) + "/manifest", BlobManifest.class);
+    }
+
+    /**
+     * Stores an inline upload unless identical content is already stored, claims a reference to it
+     * and adds its manifest to {@code updates} for the caller's atomic write. Returns the content hash.
+     */
+    CompletableFuture<String> store(String fileBlobData, List<String> fileChunks, Map<String, Object> updates) {
+        BlobChunks.Payload payload = BlobChunks.decode(fileBlobData, fileChunks);
+        String hash = BlobChunks.hex(BlobChunks.sha256().digest(payload.bytes));
+        FileBlob blob = BlobChunks.pack(payload.bytes, payload.contentType, chunkSizeBytes);
+        // Identical concurrent uploads write identical chunks, so this needs no coordination
+        Supplier<CompletableFuture<Void>> writeChunks = () -> dataStore.setValue(path(hash) + "/fileChunks",
+                blob.getFileChunks());
+
+        return storeOnce(hash, writeChunks).thenApply(written -> {
+            if (written) {
+                updates.put(path(hash) + "/manifest", blob.getManifest());
+            }
+            return hash;
+        });
+    }
+
+    /**
+     * Moves plain chunks staged under {@code stagingPath} (a resumable upload) into content storage.
+     * Chunks are read one at a time: once to hash them, and again to copy them when the content is new.
+     * The staged chunks are removed and the manifest added in {@code updates}, and a reference is
+     * claimed. Returns the content hash.
+     */
+    CompletableFuture<String> adopt(String stagingPath, BlobManifest staged, Map<String, Object> updates) {
+        MessageDigest digest = BlobChunks.sha256();
+        long[] deflatedSize = new long[1];
+
+        return eachChunk(stagingPath, staged.getChunkCount(), 0, (index, bytes) -> {
+            digest.update(bytes);
+            deflatedSize[0] += BlobChunks.deflate(bytes, 0, bytes.length).length;
+            return CompletableFuture.completedFuture(null);
+        }).thenCompose(v -> {
+            String hash = BlobChunks.hex(digest.digest());
+            String encoding = BlobChunks.worthDeflating(deflatedSize[0], staged.getTotalSize())
+                    ? BlobChunks.DEFLATE : null;
+            BlobManifest manifest = new BlobManifest(staged.getContentType(), staged.getChunkCount(),
+                    staged.getChunkSize(), staged.getTotalSize(), encoding);
+            Supplier<CompletableFuture<Void>> copyChunks = () -> eachChunk(stagingPath, staged.getChunkCount(), 0,
+                    (index, bytes) -> dataStore.setValue(path(hash) + "/fileChunks/" + index,
+                            BlobChunks.encodeChunk(bytes, encoding)));
+
+            return storeOnce(hash, copyChunks).thenApply(copied -> {
+                updates.put(stagingPath, null);
+                if (copied) {
+                    updates.put(path(hash) + "/manifest", manifest);
+                }
+                return hash;
+            });
+        });
+    }
+
+    /**
+     * Claims a reference to content that is already stored. Completes with false, claiming
+     * nothing, when there is none or it is being released.
+     */
+    CompletableFuture<Boolean> reference(String hash) {
+        checkHash(hash);
+        return claim(hash, false).thenApply(previous -> previous != null && previous != RELEASING);
+    }
+
+    /**
+     * Drops {@code count} references in {@code updates}; follow the write with {@link #releaseIfUnused}.
+     */
+    void dereference(String hash, int count, Map<String, Object> updates) {
+        updates.put(path(hash) + "/refCount", dataStore.increment(-count));
+    }
+
+    /**
+     * Deletes the content once no file references it. The check and the tombstone are one
+     * transaction, so a reference claimed concurrently either lands first and keeps the blob, or is
+     * refused until the blob is gone.
+     */
+    CompletableFuture<Void> releaseIfUnused(String hash) {
+        AtomicReference<Long> seen = new AtomicReference<>();
+        return dataStore.transaction(path(hash) + "/refCount", Long.class, refCount -> {
+            seen.set(refCount);
+            return refCount != null && refCount <= 0 ? RELEASING : refCount;
+        }).thenCompose(changed -> {
+            if (seen.get() == null || seen.get() > 0) {
+                return CompletableFuture.completedFuture(null);
+            }
+            Map<String, Object> updates = new HashMap<>();
+            updates.put(path(hash), null);
+            return dataStore.updateChildren(updates);
+        });
+    }
+
+    // Writes the chunks unless the content is stored, then claims a reference. Completes with whether
+    // the chunks were written, in which case the caller's write must add the manifest. Chunks are
+    // written again when the content was released between the check and the claim
+    private CompletableFuture<Boolean> storeOnce(String hash, Supplier<CompletableFuture<Void>> writeChunks) {
+        return find(hash).thenCompose(existing -> existing == null
+                        ? writeChunks.get().thenApply(v -> true)
+                        : CompletableFuture.completedFuture(false))
+                .thenCompose(written -> claim(hash, true).thenCompose(previous -> previous == null && !written
+                        ? writeChunks.get().thenApply(v -> true)
+                        : CompletableFuture.completedFuture(written)));
+    }
+
+    // Adds one to refCount and completes with the count it saw. A missing count is only created
+    // when `create` is set, and a tombstone is never counted: it answers 503 (and finishes the
+    // release a crash may have left behind) when creating, and null otherwise
+    private CompletableFuture<Long> claim(String hash, boolean create) {
+        AtomicReference<Long> seen = new AtomicReference<>();
+        return dataStore.transaction(path(hash) + "/refCount", Long.class, refCount -> {
+            seen.set(refCount);
+            if (refCount == null) {
+                return create ? 1L : null;
+            }
+            return refCount == RELEASING ? refCount : refCount + 1;
+        }).thenApply(changed -> {
+            Long previous = seen.get();
+            if (previous != null && previous == RELEASING) {
+                if (!create) {
+                    return null;
+                }
+                releaseIfUnused(hash).exceptionally(e -> {
+                    log.warn("Failed to release content {}: {}", hash, e.getMessage());
+                    return null;
+                });
+                throw new ServiceUnavailableException("Identical content is being removed", 1);
+            }
+            return previous;
+        });
+    }
+
+    // Reads the plain base64 chunks under path/fileChunks in order, one at a time
+    private CompletableFuture<Void> eachChunk(String path, int count, int index,
+            BiFunction<Integer, byte[], CompletableFuture<Void>> action) {
+        if (index >= count) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return dataStore.getValue(path + "/fileChunks/" + index, String.class)
+                .thenCompose(chunk -> {
+                    if (chunk == null) {
+                        throw new BadRequestException("Chunk " + index + " is missing");
+                    }
+                    return action.apply(index, Base64.getDecoder().decode(chunk));
+                })
+                .thenCompose(v -> eachChunk(path, count, index + 1, action));
+    }
+}
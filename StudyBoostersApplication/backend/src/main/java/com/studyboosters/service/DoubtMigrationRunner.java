@@ -0,0 +1,27 @@
+package com.studyboosters.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * One-time upgrade step that moves doubts from the old flat node into the per-subject layout.
+ * Enable with {@code storage.doubts.migrate-flat=true} for a single start-up.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "storage.doubts.migrate-flat", havingValue = "true")
+public class DoubtMigrationRunner implements ApplicationRunner {
+
+    private final DoubtService doubtService;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        int migrated = doubtService.migrateLegacyDoubts().join();
+        log.info("Moved {} doubts into per-subject shards", migrated);
+    }
+}
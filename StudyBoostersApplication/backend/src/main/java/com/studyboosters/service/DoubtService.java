@@ -0,0 +1,306 @@
+package com.studyboosters.service;
+
+import com.studyboosters.dto.response.PageResponse;
+import com.studyboosters.exception.BadRequestException;
+import com.studyboosters.exception.ResourceNotFoundException;
+import com.studyboosters.model.Doubt;
+import com.studyboosters.store.DataStore;
+import com.studyboosters.store.StoreQuery;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
+
+/**
+ * Student doubts, sharded per subject. Each doubt lives at {@code doubts_by_subject/{subject}/{id}}
+ * and is copied into {@code doubts_by_status/{subject}/{status}/{id}} and
+ * {@code doubts_by_student/{studentId}/{id}}; {@code doubt_shards/{id}} points back at the subject
+ * and {@code doubt_counts/{subject}/{status}} holds the counts. Every change writes all of them in
+ * one multi-path update. Ids are chronological push keys, so every listing is a newest-first key
+ * query over one small node, and its cost does not depend on how many doubts a subject has.
+ */
+@Service
+@RequiredArgsConstructor
+public class DoubtService {
+
+    static final String DOUBTS_PATH = "doubts_by_subject";
+    static final String STATUS_INDEX_PATH = "doubts_by_status";
+    static final String STUDENT_INDEX_PATH = "doubts_by_student";
+    static final String SHARDS_PATH = "doubt_shards";
+    static final String COUNTS_PATH = "doubt_counts";
+    static final String LEGACY_PATH = "doubts";
+
+    private static final String PENDING = "Pending";
+    private static final String ANSWERED = "Answered";
+    private static final int MAX_TEXT_LENGTH = 4000;
+    private static final Pattern PUSH_KEY = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+    private final DataStore dataStore;
+
+    public CompletableFuture<Doubt> postDoubt(String subject, String question, String studentId,
+            String studentName) {
+        if (subject == null || subject.isBlank()) {
+            throw new BadRequestException("Subject is required");
+        }
+        String text = requireText(question, "Question");
+
+        Doubt doubt = new Doubt();
+        doubt.setStudentId(studentId);
+        doubt.setStudentName(studentName);
+        doubt.setSubject(subject.trim());
+        doubt.setQuestion(text);
+        doubt.setStatus(PENDING);
+        doubt.setTimestamp(getCurrentTimestamp());
+
+        String doubtId = dataStore.newKey(DOUBTS_PATH);
+        Map<String, Object> updates = new HashMap<>();
+        Map<String, Integer> counts = new HashMap<>();
+        stage(doubtId, doubt, updates, counts);
+        stageCounts(shardKey(doubt.getSubject()), counts, updates);
+
+        return dataStore.updateChildren(updates).thenApply(v -> {
+            doubt.setId(doubtId);
+            return doubt;
+        });
+    }
+
+    /**
+     * Answers a pending doubt. The status is claimed first with a transaction, so of two answers
+     * racing on the same doubt only one is written and the counts move once; the other gets 400.
+     * If the write after the claim fails, the claim is released so the doubt can be answered again.
+     */
+    public CompletableFuture<Doubt> answerDoubt(String doubtId, String answer, String answeredBy) {
+        String text = requireText(answer, "Answer");
+        checkKey(doubtId, "doubt id");
+
+        return dataStore.getValue(SHARDS_PATH + "/" + doubtId, String.class).thenCompose(shard -> {
+            if (shard == null) {
+                throw new ResourceNotFoundException("Doubt not found with id: " + doubtId);
+            }
+            return claimAnswer(shard, doubtId).thenCompose(v -> writeAnswer(shard, doubtId, text, answeredBy)
+                    .exceptionallyCompose(e -> releaseAnswer(shard, doubtId).handle((released, releaseError) -> {
+                        throw e instanceof CompletionException ? (CompletionException) e : new CompletionException(e);
+                    })));
+        });
+    }
+
+    private CompletableFuture<Doubt> writeAnswer(String shard, String doubtId, String text, String answeredBy) {
+        return dataStore.getById(DOUBTS_PATH + "/" + shard, doubtId, Doubt.class).thenCompose(doubt -> {
+            doubt.setStatus(ANSWERED);
+            doubt.setAnswer(text);
+            doubt.setAnsweredBy(answeredBy);
+            doubt.setAnsweredAt(getCurrentTimestamp());
+
+            Map<String, Object> fields = new HashMap<>();
+            fields.put("status", doubt.getStatus());
+            fields.put("answer", doubt.getAnswer());
+            fields.put("answeredBy", doubt.getAnsweredBy());
+            fields.put("answeredAt", doubt.getAnsweredAt());
+
+            Map<String, Object> updates = new HashMap<>();
+            String base = DOUBTS_PATH + "/" + shard + "/" + doubtId + "/";
+            fields.forEach((field, value) -> updates.put(base + field, value));
+            if (doubt.getStudentId() != null) {
+                String copy = STUDENT_INDEX_PATH + "/" + doubt.getStudentId() + "/" + doubtId + "/";
+                fields.forEach((field, value) -> updates.put(copy + field, value));
+            }
+            updates.put(STATUS_INDEX_PATH + "/" + shard + "/" + PENDING + "/" + doubtId, null);
+            updates.put(STATUS_INDEX_PATH + "/" + shard + "/" + ANSWERED + "/" + doubtId, record(doubt));
+
+            Map<String, Integer> counts = new HashMap<>();
+            counts.put(PENDING, -1);
+            counts.put(ANSWERED, 1);
+            stageCounts(shard, counts, updates);
+            return dataStore.updateChildren(updates).thenApply(v -> doubt);
+        });
+    }
+
+    // Moves the doubt's status from Pending to Answered, failing if it is gone or already answered
+    private CompletableFuture<Void> claimAnswer(String shard, String doubtId) {
+        AtomicReference<String> seen = new AtomicReference<>();
+        return dataStore.transaction(DOUBTS_PATH + "/" + shard + "/" + doubtId + "/status", String.class, status -> {
+            seen.set(status);
+            return PENDING.equals(status) ? ANSWERED : status;
+        }).thenAccept(claimed -> {
+            if (seen.get() == null) {
+                throw new ResourceNotFoundException("Doubt not found with id: " + doubtId);
+            }
+            if (!claimed) {
+                throw new BadRequestException("Doubt is already answered");
+            }
+        });
+    }
+
+    // Undoes a claim whose answer was never written; only the claim holder calls this
+    private CompletableFuture<Boolean> releaseAnswer(String shard, String doubtId) {
+        return dataStore.transaction(DOUBTS_PATH + "/" + shard + "/" + doubtId + "/status", String.class,
+                status -> ANSWERED.equals(status) ? PENDING : status);
+    }
+
+    /**
+     * Newest-first page of a subject's doubts, optionally only those with {@code status}.
+     * Pass {@code nextCursor} back as {@code cursor}.
+     */
+    public CompletableFuture<PageResponse<Doubt>> getDoubts(String subject, String status, int limit,
+            String cursor) {
+        if (subject == null || subject.isBlank()) {
+            throw new BadRequestException("Subject is required");
+        }
+        if (status != null && !PENDING.equals(status) && !ANSWERED.equals(status)) {
+            throw new BadRequestException("Status must be Pending or Answered");
+        }
+        String shard = shardKey(subject.trim());
+        String path = status != null ? STATUS_INDEX_PATH + "/" + shard + "/" + status : DOUBTS_PATH + "/" + shard;
+        return newestFirst(path, limit, cursor);
+    }
+
+    /**
+     * Newest-first page of one student's doubts across all subjects.
+     */
+    public CompletableFuture<PageResponse<Doubt>> getStudentDoubts(String studentId, int limit, String cursor) {
+        return newestFirst(STUDENT_INDEX_PATH + "/" + studentId, limit, cursor);
+    }
+
+    /**
+     * Pending and answered counts of a subject, from the maintained counters (one small read).
+     */
+    public CompletableFuture<Map<String, Long>> getCounts(String subject) {
+        if (subject == null || subject.isBlank()) {
+            throw new BadRequestException("Subject is required");
+        }
+        return dataStore.getValue(COUNTS_PATH + "/" + shardKey(subject.trim()), Map.class).thenApply(stored -> {
+            Map<String, Long> counts = new LinkedHashMap<>();
+            counts.put(PENDING, 0L);
+            counts.put(ANSWERED, 0L);
+            if (stored != null) {
+                for (Object entry : stored.entrySet()) {
+                    Map.Entry<?, ?> count = (Map.Entry<?, ?>) entry;
+                    if (count.getValue() instanceof Number) {
+                        counts.put(String.valueOf(count.getKey()), ((Number) count.getValue()).longValue());
+                    }
+                }
+            }
+            return counts;
+        });
+    }
+
+    /**
+     * Moves doubts from the old flat {@code doubts} node (written directly by earlier clients) into
+     * the sharded layout, adding them to the counts and removing the originals in the same write,
+     * so running it again only picks up what is new. Doubts without a subject are left in place;
+     * old doubts carry no student id, so they do not show up in "my doubts".
+     */
+    public CompletableFuture<Integer> migrateLegacyDoubts() {
+        return dataStore.getList(LEGACY_PATH, Doubt.class).thenCompose(doubts -> {
+            Map<String, Object> updates = new HashMap<>();
+            Map<String, Map<String, Integer>> counts = new HashMap<>();
+            int moved = 0;
+            for (Doubt doubt : doubts) {
+                if (doubt.getSubject() == null || doubt.getSubject().isBlank()) {
+                    continue;
+                }
+                if (!ANSWERED.equals(doubt.getStatus())) {
+                    doubt.setStatus(PENDING);
+                }
+                String doubtId = doubt.getId();
+                Map<String, Integer> subjectCounts = counts.computeIfAbsent(shardKey(doubt.getSubject()),
+                        shard -> new HashMap<>());
+                stage(doubtId, doubt, updates, subjectCounts);
+                updates.put(LEGACY_PATH + "/" + doubtId, null);
+                moved++;
+            }
+            if (updates.isEmpty()) {
+                return CompletableFuture.completedFuture(0);
+            }
+            counts.forEach((shard, deltas) -> stageCounts(shard, deltas, updates));
+            int migrated = moved;
+            return dataStore.updateChildren(updates).thenApply(v -> migrated);
+        });
+    }
+
+    // Canonical record, status index entry, student index entry and shard pointer of a new doubt
+    private void stage(String doubtId, Doubt doubt, Map<String, Object> updates, Map<String, Integer> counts) {
+        String shard = shardKey(doubt.getSubject());
+        Doubt record = record(doubt);
+        updates.put(DOUBTS_PATH + "/" + shard + "/" + doubtId, record);
+        updates.put(STATUS_INDEX_PATH + "/" + shard + "/" + doubt.getStatus() + "/" + doubtId, record);
+        if (doubt.getStudentId() != null) {
+            updates.put(STUDENT_INDEX_PATH + "/" + doubt.getStudentId() + "/" + doubtId, record);
+        }
+        updates.put(SHARDS_PATH + "/" + doubtId, shard);
+        counts.merge(doubt.getStatus(), 1, Integer::sum);
+    }
+
+    private void stageCounts(String shard, Map<String, Integer> counts, Map<String, Object> updates) {
+        counts.forEach((status, delta) -> {
+            if (delta != 0) {
+                updates.put(COUNTS_PATH + "/" + shard + "/" + status, dataStore.increment(delta));
+            }
+        });
+    }
+
+    private CompletableFuture<PageResponse<Doubt>> newestFirst(String path, int limit, String cursor) {
+        if (cursor != null) {
+            checkKey(cursor, "cursor");
+        }
+
+        // Bounds are inclusive, so fetch one extra to skip the cursor entry and one to detect more
+        StoreQuery query = StoreQuery.orderByKey().limitToLast(limit + (cursor != null ? 2 : 1));
+        if (cursor != null) {
+            query.endAt(cursor);
+        }
+
+        return dataStore.query(path, query, Doubt.class).thenApply(doubts -> {
+            doubts.removeIf(doubt -> doubt.getId().equals(cursor));
+            boolean hasMore = doubts.size() > limit;
+            List<Doubt> page = new ArrayList<>(doubts.subList(Math.max(0, doubts.size() - limit), doubts.size()));
+            Collections.reverse(page);
+
+            String nextCursor = hasMore ? page.get(page.size() - 1).getId() : null;
+            return new PageResponse<>(page, nextCursor, null, hasMore);
+        });
+    }
+
+    // The stored form: the id is the key, so it is not repeated in the value
+    private static Doubt record(Doubt doubt) {
+        return new Doubt(null, doubt.getStudentId(), doubt.getStudentName(), doubt.getSubject(),
+                doubt.getQuestion(), doubt.getStatus(), doubt.getTimestamp(), doubt.getAnswer(),
+                doubt.getAnsweredBy(), doubt.getAnsweredAt());
+    }
+
+    // Subjects are free text; encode them the same way roll numbers are encoded for keys
+    private static String shardKey(String subject) {
+        return AuthService.rollKey(subject);
+    }
+
+    private static String requireText(String text, String name) {
+        if (text == null || text.isBlank()) {
+            throw new BadRequestException(name + " is required");
+        }
+        if (text.length() > MAX_TEXT_LENGTH) {
+            throw new BadRequestException(name + " must be at most " + MAX_TEXT_LENGTH + " characters");
+        }
+        return text.trim();
+    }
+
+    private static void checkKey(String key, String name) {
+        if (!PUSH_KEY.matcher(key).matches()) {
+            throw new BadRequestException("Invalid " + name);
+        }
+    }
+
+    private String getCurrentTimestamp() {
+        return LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+    }
+}
@@ -0,0 +1,132 @@
+package com.studyboosters.service;
+
+import com.studyboosters.model.StudyFile;
+import com.studyboosters.store.DataStore;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Download counters that never read-modify-write the stored record from a request. Downloads bump
+ * a per-file {@link LongAdder}; pending deltas are periodically flushed, each as a transaction on
+ * the file's {@code downloadCount} that only applies while the file still exists, so a flush racing
+ * a delete cannot recreate the record. Concurrent downloads neither contend nor lose counts.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DownloadCounterService {
+
+    private final DataStore dataStore;
+
+    private final Map<String, Counter> pending = new ConcurrentHashMap<>();
+
+    public void increment(String fileId) {
+        // compute, so the increment cannot land on a counter that a flush is removing
+        pending.compute(fileId, (id, counter) -> {
+            Counter current = counter != null ? counter : new Counter();
+            current.increment();
+            return current;
+        });
+    }
+
+    public long pendingCount(String fileId) {
+        LongAdder adder = pending.get(fileId);
+        return adder != null ? adder.sum() : 0;
+    }
+
+    /**
+     * Flushed count from the stored record plus increments not yet written.
+     */
+    public int currentCount(StudyFile file) {
+        long flushed = file.getDownloadCount() != null ? file.getDownloadCount() : 0;
+        return (int) (flushed + pendingCount(file.getId()));
+    }
+
+    /**
+     * Overlays pending increments onto a freshly read record.
+     */
+    public StudyFile merge(StudyFile file) {
+        if (pending.containsKey(file.getId())) {
+            file.setDownloadCount(currentCount(file));
+        }
+        return file;
+    }
+
+    /**
+     * Drops pending increments, e.g. when the file is deleted; a flush in progress does not retry them.
+     */
+    public void forget(String fileId) {
+        Counter counter = pending.remove(fileId);
+        if (counter != null) {
+            counter.forgotten = true;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${files.download-counter.flush-interval-ms:5000}")
+    public void scheduledFlush() {
+        flush();
+    }
+
+    public CompletableFuture<Void> flush() {
+        Map<String, Long> deltas = new HashMap<>();
+        Map<String, Counter> flushed = new HashMap<>();
+        for (Map.Entry<String, Counter> entry : pending.entrySet()) {
+            long delta = entry.getValue().sumThenReset();
+            if (delta > 0) {
+                deltas.put(entry.getKey(), delta);
+                flushed.put(entry.getKey(), entry.getValue());
+            } else {
+                // Spent counters are dropped, so the map only holds files downloaded since the last flush
+                pending.computeIfPresent(entry.getKey(), (id, counter) -> counter.sum() == 0 ? null : counter);
+            }
+        }
+        if (deltas.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return FanOut.inWindows(new ArrayList<>(deltas.entrySet()), delta -> dataStore.transaction(
+                StudyFileService.FILES_PATH + "/" + delta.getKey() + "/downloadCount", Long.class,
+                count -> count != null ? Long.valueOf(count + delta.getValue()) : null)
+                .exceptionally(e -> {
+                    retry(delta.getKey(), flushed.get(delta.getKey()), delta.getValue());
+                    log.warn("Failed to flush download count of {}: {}", delta.getKey(), e.getMessage());
+                    return false;
+                })).thenApply(v -> null);
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        try {
+            flush().get(10, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            log.warn("Download counts not flushed on shutdown: {}", e.getMessage());
+        }
+    }
+
+    // Puts a failed delta back for the next flush, unless the file was deleted meanwhile
+    private void retry(String fileId, Counter flushed, long delta) {
+        if (flushed.forgotten) {
+            return;
+        }
+        pending.compute(fileId, (id, counter) -> {
+            Counter current = counter != null ? counter : new Counter();
+            current.add(delta);
+            return current;
+        });
+    }
+
+    private static final class Counter extends LongAdder {
+        private volatile boolean forgotten;
+    }
+}
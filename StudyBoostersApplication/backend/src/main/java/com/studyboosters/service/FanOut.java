@@ -0,0 +1,38 @@
+package com.studyboosters.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Runs one store call per item, at most {@link #WINDOW} at a time, so a large batch waits here
+ * instead of filling the store bulkheads and getting other requests shed.
+ */
+final class FanOut {
+
+    static final int WINDOW = 32;
+
+    private FanOut() {
+    }
+
+    /**
+     * Results in item order; fails with the first failure of a window.
+     */
+    static <T, R> CompletableFuture<List<R>> inWindows(List<T> items, Function<T, CompletableFuture<R>> call) {
+        List<R> results = new ArrayList<>(items.size());
+        CompletableFuture<Void> chain = CompletableFuture.completedFuture(null);
+        for (int start = 0; start < items.size(); start += WINDOW) {
+            List<T> window = items.subList(start, Math.min(items.size(), start + WINDOW));
+            chain = chain.thenCompose(v -> {
+                List<CompletableFuture<R>> calls = new ArrayList<>(window.size());
+                for (T item : window) {
+                    calls.add(call.apply(item));
+                }
+                return CompletableFuture.allOf(calls.toArray(new CompletableFuture[0]))
+                        .thenRun(() -> calls.forEach(pending -> results.add(pending.join())));
+            });
+        }
+        return chain.thenApply(v -> results);
+    }
+}
@@ -0,0 +1,27 @@
+package com.studyboosters.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * One-time upgrade step that splits inline file payloads out of the metadata records.
+ * Enable with {@code storage.files.migrate-inline-blobs=true} for a single start-up.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "storage.files.migrate-inline-blobs", havingValue = "true")
+public class FileBlobMigrationRunner implements ApplicationRunner {
+
+    private final StudyFileService studyFileService;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        int migrated = studyFileService.migrateInlineBlobs().join();
+        log.info("Moved {} inline file payloads to file_blobs", migrated);
+    }
+}
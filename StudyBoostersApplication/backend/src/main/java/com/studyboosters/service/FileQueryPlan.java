@@ -0,0 +1,149 @@
+package com.studyboosters.service;
+
+import com.studyboosters.exception.BadRequestException;
+import com.studyboosters.model.StudyFile;
+import com.studyboosters.store.StoreQuery;
+
+import java.util.function.Function;
+
+/**
+ * Chooses the ordered query for a file listing. The store orders by one child only, so a status
+ * filter is folded into composite keys ({@code status|uploadDate}, {@code status|subject|uploadDate},
+ * {@code status|title}) and served as a prefix range; other filters are checked on each fetched row.
+ * Both title sorts order lowercase keys ({@code titleKey}, {@code statusTitle}), so they agree on case.
+ */
+final class FileQueryPlan {
+
+    private final String orderBy;
+    private final String prefix; // Range of a composite key; null for a plain child
+    private final boolean descending;
+    private final Function<StudyFile, Object> sortValue;
+    private final String status;
+    private final String subject;
+    private final String semester;
+    private final String fileType;
+
+    private FileQueryPlan(String orderBy, String prefix, boolean descending, Function<StudyFile, Object> sortValue,
+            String status, String subject, String semester, String fileType) {
+        this.orderBy = orderBy;
+        this.prefix = prefix;
+        this.descending = descending;
+        this.sortValue = sortValue;
+        this.status = status;
+        this.subject = subject;
+        this.semester = semester;
+        this.fileType = fileType;
+    }
+
+    /**
+     * Plans a listing sorted by {@code uploadDate} (default, newest first), {@code downloadCount}
+     * (most first) or {@code title} (A-Z). Blank filters are ignored.
+     */
+    static FileQueryPlan plan(String status, String subject, String semester, String fileType, String sort) {
+        status = blankToNull(status);
+        subject = blankToNull(subject);
+        semester = blankToNull(semester);
+        fileType = blankToNull(fileType);
+
+        String sortBy = sort == null || sort.isBlank() ? "uploadDate" : sort;
+        switch (sortBy) {
+            case "uploadDate":
+                if (status != null && subject != null) {
+                    return new FileQueryPlan("statusSubjectUploadDate", status + "|" + subject + "|", true,
+                            StudyFile::getStatusSubjectUploadDate, status, subject, semester, fileType);
+                }
+                if (status != null) {
+                    return new FileQueryPlan("statusUploadDate", status + "|", true,
+                            StudyFile::getStatusUploadDate, status, subject, semester, fileType);
+                }
+                return new FileQueryPlan("uploadDate", null, true,
+                        StudyFile::getUploadDate, null, subject, semester, fileType);
+            case "title":
+                if (status != null) {
+                    return new FileQueryPlan("statusTitle", status + "|", false,
+                            StudyFile::getStatusTitle, status, subject, semester, fileType);
+                }
+                return new FileQueryPlan("titleKey", null, false,
+                        StudyFile::getTitleKey, null, subject, semester, fileType);
+            case "downloadCount":
+                // Counts change through server-side increments, so there is no composite key to keep current
+                return new FileQueryPlan("downloadCount", null, true,
+                        file -> file.getDownloadCount() != null ? file.getDownloadCount().longValue() : null,
+                        status, subject, semester, fileType);
+            default:
+                throw new BadRequestException("Unsupported sort: " + sort + " (use uploadDate, downloadCount or title)");
+        }
+    }
+
+    /**
+     * Query for up to {@code fetch} rows, resuming at the cursor row (inclusive) when one is given.
+     */
+    StoreQuery query(String cursorKey, Object cursorValue, int fetch) {
+        StoreQuery query = StoreQuery.orderByChild(orderBy);
+        String upper = prefix != null ? prefix + "\uf8ff" : null;
+        if (descending) {
+            if (prefix != null) {
+                query.startAt(prefix);
+            }
+            if (cursorKey != null) {
+                query.endAt(cursorValue, cursorKey);
+            } else if (upper != null) {
+                query.endAt(upper);
+            }
+            return query.limitToLast(fetch);
+        }
+
+        if (cursorKey != null) {
+            query.startAt(cursorValue, cursorKey);
+        } else if (prefix != null) {
+            query.startAt(prefix);
+        }
+        if (upper != null) {
+            query.endAt(upper);
+        }
+        return query.limitToFirst(fetch);
+    }
+
+    /**
+     * Rows come back ascending; descending plans reverse them into page order.
+     */
+    boolean isDescending() {
+        return descending;
+    }
+
+    boolean matches(StudyFile file) {
+        return (status == null || status.equals(file.getStatus()))
+                && (subject == null || subject.equals(file.getSubject()))
+                && (semester == null || semester.equals(file.getSemester()))
+                && (fileType == null || fileType.equals(file.getFileType()));
+    }
+
+    Object sortValue(StudyFile file) {
+        return sortValue.apply(file);
+    }
+
+    /**
+     * {@code key~value} of the ordered child, or just {@code key} when the row has no value: the
+     * store orders rows without one first, by key, so the key alone resumes among them.
+     */
+    String cursorOf(StudyFile file) {
+        Object value = sortValue(file);
+        // Push keys never contain '~'
+        return value != null ? file.getId() + "~" + value : file.getId();
+    }
+
+    Object cursorValue(String encoded) {
+        if (!"downloadCount".equals(orderBy)) {
+            return encoded;
+        }
+        try {
+            return Long.valueOf(encoded);
+        } catch (NumberFormatException e) {
+            throw new BadRequestException("Invalid cursor");
+        }
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value;
+    }
+}
@@ -0,0 +1,275 @@
+package com.studyboosters.service;
+
+import com.studyboosters.dto.response.PageResponse;
+import com.studyboosters.model.StudyFile;
+import com.studyboosters.store.DataStore;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * In-process inverted index over file metadata (title, subject, description, semester, uploader).
+ * Terms are kept sorted so a query word matches every term it prefixes, like the trie in
+ * {@code VirtualSharing}. Hits are ranked by field-weighted TF-IDF with a download-count boost.
+ * Uploads, approvals and deletes update the index in place; {@link #rebuild()} reloads it.
+ */
+@Service
+@RequiredArgsConstructor
+public class FileSearchService {
+
+    public static final int MAX_RESULTS = 1000;
+
+    private static final float TITLE_WEIGHT = 3f;
+    private static final float SUBJECT_WEIGHT = 2f;
+    private static final float OTHER_WEIGHT = 1f;
+    private static final float PREFIX_MATCH = 0.6f; // a word that only prefixes a term counts for less
+    private static final double DOWNLOAD_BOOST = 0.1;
+
+    private final DataStore dataStore;
+    private final DownloadCounterService downloadCounterService;
+
+    private volatile Index index = new Index();
+
+    // Writes are rare; serialising them keeps a rebuild from losing concurrent updates
+    private final Object writeLock = new Object();
+    private List<Consumer<Index>> journal; // changes made while a rebuild is loading, guarded by writeLock
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    public void index(StudyFile file) {
+        apply(target -> target.put(file));
+    }
+
+    public void remove(String fileId) {
+        apply(target -> target.remove(fileId));
+    }
+
+    /**
+     * Keeps the ranking boost current between rebuilds.
+     */
+    public void updateDownloads(String fileId, int downloads) {
+        apply(target -> target.updateDownloads(fileId, downloads));
+    }
+
+    /**
+     * Loads every file and indexes them in parallel into a fresh index, then swaps it in.
+     * Updates that arrive meanwhile are replayed onto the new index before the swap.
+     */
+    public CompletableFuture<Integer> rebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return CompletableFuture.completedFuture(0);
+        }
+        synchronized (writeLock) {
+            journal = new ArrayList<>();
+        }
+
+        return dataStore.getList(StudyFileService.FILES_PATH, StudyFile.class)
+                .thenApplyAsync(files -> {
+                    Index fresh = new Index();
+                    files.parallelStream().map(downloadCounterService::merge).forEach(fresh::put);
+                    synchronized (writeLock) {
+                        journal.forEach(change -> change.accept(fresh));
+                        index = fresh;
+                    }
+                    return files.size();
+                })
+                .whenComplete((count, e) -> {
+                    synchronized (writeLock) {
+                        journal = null;
+                    }
+                    rebuilding.set(false);
+                });
+    }
+
+    /**
+     * Files matching every word of {@code query} (each as a prefix), best first. Only approved
+     * files unless {@code includeUnapproved}. {@code offset + limit} is capped at {@link #MAX_RESULTS}.
+     */
+    public PageResponse<StudyFile> search(String query, boolean includeUnapproved, int offset, int limit) {
+        List<String> words = tokenize(query);
+        int end = Math.min(offset + limit, MAX_RESULTS);
+        if (words.isEmpty() || offset >= end) {
+            return new PageResponse<>(new ArrayList<>(), null, null, false);
+        }
+
+        Index current = index;
+        Map<String, Float> scores = null;
+        for (String word : new LinkedHashSet<>(words)) {
+            Map<String, Float> wordScores = current.match(word);
+            if (scores == null) {
+                scores = wordScores;
+            } else {
+                Map<String, Float> matched = new HashMap<>();
+                for (Map.Entry<String, Float> hit : scores.entrySet()) {
+                    Float score = wordScores.get(hit.getKey());
+                    if (score != null) {
+                        matched.put(hit.getKey(), hit.getValue() + score);
+                    }
+                }
+                scores = matched;
+            }
+            if (scores.isEmpty()) {
+                break;
+            }
+        }
+
+        // Keep only the best end + 1 hits (the extra one tells whether there is another page)
+        Comparator<Hit> ranking = Comparator.comparingDouble((Hit hit) -> hit.score)
+                .thenComparing(hit -> hit.entry.file.getId(), Comparator.reverseOrder());
+        PriorityQueue<Hit> top = new PriorityQueue<>(ranking);
+        for (Map.Entry<String, Float> hit : scores.entrySet()) {
+            Entry entry = current.entries.get(hit.getKey());
+            if (entry == null || (!includeUnapproved && !"Approved".equals(entry.file.getStatus()))) {
+                continue;
+            }
+            double score = hit.getValue() * (1 + DOWNLOAD_BOOST * Math.log1p(entry.downloads));
+            top.add(new Hit(entry, score));
+            if (top.size() > end + 1) {
+                top.poll();
+            }
+        }
+
+        List<Hit> ranked = new ArrayList<>(top);
+        ranked.sort(ranking.reversed());
+        boolean hasMore = ranked.size() > end && end < MAX_RESULTS;
+        List<StudyFile> page = new ArrayList<>();
+        for (int i = offset; i < Math.min(end, ranked.size()); i++) {
+            page.add(ranked.get(i).entry.toFile());
+        }
+
+        String nextCursor = hasMore ? String.valueOf(end) : null;
+        String prevCursor = offset > 0 ? String.valueOf(Math.max(0, offset - limit)) : null;
+        return new PageResponse<>(page, nextCursor, prevCursor, hasMore);
+    }
+
+    public Map<String, Object> stats() {
+        Index current = index;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("files", current.entries.size());
+        stats.put("terms", current.postings.size());
+        stats.put("rebuilding", rebuilding.get());
+        return stats;
+    }
+
+    private void apply(Consumer<Index> change) {
+        synchronized (writeLock) {
+            change.accept(index);
+            if (journal != null) {
+                journal.add(change);
+            }
+        }
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private static final class Index {
+        // term -> (file id -> weight of the term in that file)
+        private final ConcurrentSkipListMap<String, Map<String, Float>> postings = new ConcurrentSkipListMap<>();
+        private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+        private void put(StudyFile file) {
+            remove(file.getId());
+            Map<String, Float> terms = new HashMap<>();
+            addTerms(terms, file.getTitle(), TITLE_WEIGHT);
+            addTerms(terms, file.getSubject(), SUBJECT_WEIGHT);
+            addTerms(terms, file.getDescription(), OTHER_WEIGHT);
+            addTerms(terms, file.getSemester(), OTHER_WEIGHT);
+            addTerms(terms, file.getUploader(), OTHER_WEIGHT);
+
+            entries.put(file.getId(), new Entry(file, terms.keySet()));
+            terms.forEach((term, weight) ->
+                    postings.computeIfAbsent(term, t -> new ConcurrentHashMap<>()).put(file.getId(), weight));
+        }
+
+        private void remove(String fileId) {
+            Entry entry = entries.remove(fileId);
+            if (entry == null) {
+                return;
+            }
+            for (String term : entry.terms) {
+                postings.computeIfPresent(term, (t, files) -> {
+                    files.remove(fileId);
+                    return files.isEmpty() ? null : files;
+                });
+            }
+        }
+
+        private void updateDownloads(String fileId, int downloads) {
+            Entry entry = entries.get(fileId);
+            if (entry != null) {
+                entry.downloads = downloads;
+            }
+        }
+
+        /**
+         * Best score per file over all terms that {@code word} prefixes.
+         */
+        private Map<String, Float> match(String word) {
+            Map<String, Float> scores = new HashMap<>();
+            double total = Math.max(1, entries.size());
+            for (Map.Entry<String, Map<String, Float>> term
+                    : postings.subMap(word, true, word + Character.MAX_VALUE, false).entrySet()) {
+                Map<String, Float> files = term.getValue();
+                float idf = (float) Math.log(1 + total / Math.max(1, files.size()));
+                float match = term.getKey().length() == word.length() ? 1f : PREFIX_MATCH;
+                files.forEach((fileId, weight) -> scores.merge(fileId, weight * idf * match, Math::max));
+            }
+            return scores;
+        }
+
+        private static void addTerms(Map<String, Float> terms, String text, float weight) {
+            for (String token : tokenize(text)) {
+                terms.merge(token, weight, Float::sum);
+            }
+        }
+    }
+
+    private static final class Entry {
+        private final StudyFile file;
+        private final Set<String> terms;
+        private volatile int downloads;
+
+        private Entry(StudyFile file, Set<String> terms) {
+            // Only metadata is indexed; payload fields are never kept
+            this.file = new StudyFile(file.getId(), file.getTitle(), file.getSubject(), file.getSemester(),
+                    file.getUploader(), file.getUploaderId(), file.getFileType(), file.getFileSize(),
+                    file.getUploadDate(), file.getDownloadCount(), file.getDescription(), file.getStatus(),
+                    null, null, file.getContentHash(), null, null, null, null);
+            this.terms = terms;
+            this.downloads = file.getDownloadCount() != null ? file.getDownloadCount() : 0;
+        }
+
+        private StudyFile toFile() {
+            return new StudyFile(file.getId(), file.getTitle(), file.getSubject(), file.getSemester(),
+                    file.getUploader(), file.getUploaderId(), file.getFileType(), file.getFileSize(),
+                    file.getUploadDate(), downloads, file.getDescription(), file.getStatus(),
+                    null, null, file.getContentHash(), null, null, null, null);
+        }
+    }
+
+    private static final class Hit {
+        private final Entry entry;
+        private final double score;
+
+        private Hit(Entry entry, double score) {
+            this.entry = entry;
+            this.score = score;
+        }
+    }
+}
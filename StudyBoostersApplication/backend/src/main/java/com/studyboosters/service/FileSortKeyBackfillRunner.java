@@ -0,0 +1,27 @@
+package com.studyboosters.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * One-time upgrade step that adds the composite sort keys to existing files.
+ * Enable with {@code storage.files.backfill-sort-keys=true} for a single start-up.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "storage.files.backfill-sort-keys", havingValue = "true")
+public class FileSortKeyBackfillRunner implements ApplicationRunner {
+
+    private final StudyFileService studyFileService;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        int indexed = studyFileService.backfillSortKeys().join();
+        log.info("Added sort keys to {} files", indexed);
+    }
+}
@@ -0,0 +1,216 @@
+package com.studyboosters.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.firebase.database.*;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Opt-in in-memory mirror of hot Firebase nodes, kept current by persistent
+ * {@link ChildEventListener}s. {@link FirebaseService} serves reads of mirrored paths from
+ * here once the initial load has finished and falls back to direct reads until then.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "storage.backend", havingValue = "firebase", matchIfMissing = true)
+public class FirebaseReplica {
+
+    private final FirebaseDatabase firebaseDatabase;
+    private final ObjectMapper objectMapper;
+
+    @Value("${firebase.replica.paths:}")
+    private List<String> paths;
+
+    private final Map<String, Mirror> mirrors = new ConcurrentHashMap<>();
+    private volatile boolean connected;
+    private volatile long connectionChangedAt = System.currentTimeMillis();
+    private ValueEventListener connectionListener;
+
+    @PostConstruct
+    public void start() {
+        for (String path : paths) {
+            if (!path.isBlank()) {
+                mirrors.put(path.trim(), new Mirror(path.trim()));
+            }
+        }
+        if (mirrors.isEmpty()) {
+            return;
+        }
+
+        connectionListener = firebaseDatabase.getReference(".info/connected")
+                .addValueEventListener(new ValueEventListener() {
+                    @Override
+                    public void onDataChange(DataSnapshot snapshot) {
+                        connected = Boolean.TRUE.equals(snapshot.getValue(Boolean.class));
+                        connectionChangedAt = System.currentTimeMillis();
+                    }
+
+                    @Override
+                    public void onCancelled(DatabaseError error) {
+                    }
+                });
+
+        mirrors.values().forEach(Mirror::attach);
+    }
+
+    @PreDestroy
+    public void stop() {
+        mirrors.values().forEach(Mirror::detach);
+        if (connectionListener != null) {
+            firebaseDatabase.getReference(".info/connected").removeEventListener(connectionListener);
+        }
+    }
+
+    /**
+     * The mirror for {@code path} if it is warm, otherwise {@code null}; callers then read directly.
+     */
+    Mirror ready(String path) {
+        Mirror mirror = mirrors.get(path);
+        if (mirror == null) {
+            return null;
+        }
+        if (!mirror.ready) {
+            mirror.fallbacks.incrementAndGet();
+            return null;
+        }
+        mirror.hits.incrementAndGet();
+        return mirror;
+    }
+
+    /**
+     * Per-path staleness and hit-rate figures.
+     */
+    public Map<String, Object> stats() {
+        long now = System.currentTimeMillis();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("connected", connected);
+        stats.put("connectionStateAgeMillis", now - connectionChangedAt);
+
+        Map<String, Object> perPath = new LinkedHashMap<>();
+        for (Mirror mirror : mirrors.values()) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("ready", mirror.ready);
+            entry.put("size", mirror.children.size());
+            entry.put("events", mirror.events.get());
+            entry.put("lastEventAgeMillis", mirror.lastEventAt > 0 ? now - mirror.lastEventAt : null);
+            entry.put("hits", mirror.hits.get());
+            entry.put("fallbacks", mirror.fallbacks.get());
+            perPath.put(mirror.path, entry);
+        }
+        stats.put("paths", perPath);
+        return stats;
+    }
+
+    final class Mirror {
+        private final String path;
+        // Sorted by key, matching the order Firebase returns children in
+        private final NavigableMap<String, DataSnapshot> children = new ConcurrentSkipListMap<>();
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong fallbacks = new AtomicLong();
+        private final AtomicLong events = new AtomicLong();
+        private volatile boolean ready;
+        private volatile long lastEventAt;
+        private ChildEventListener listener;
+
+        private Mirror(String path) {
+            this.path = path;
+        }
+
+        private DatabaseReference reference() {
+            return firebaseDatabase.getReference(FirebaseService.ROOT_PATH + "/" + path);
+        }
+
+        private void attach() {
+            listener = reference().addChildEventListener(new ChildEventListener() {
+                @Override
+                public void onChildAdded(DataSnapshot snapshot, String previousChildName) {
+                    put(snapshot);
+                }
+
+                @Override
+                public void onChildChanged(DataSnapshot snapshot, String previousChildName) {
+                    put(snapshot);
+                }
+
+                @Override
+                public void onChildRemoved(DataSnapshot snapshot) {
+                    children.remove(snapshot.getKey());
+                    touch();
+                }
+
+                @Override
+                public void onChildMoved(DataSnapshot snapshot, String previousChildName) {
+                }
+
+                @Override
+                public void onCancelled(DatabaseError error) {
+                    ready = false;
+                    log.warn("Replica of {} cancelled: {}", path, error.getMessage());
+                }
+            });
+
+            // Value events for a location are raised after its child events, so once this
+            // fires the initial children are all in the mirror
+            reference().addListenerForSingleValueEvent(new ValueEventListener() {
+                @Override
+                public void onDataChange(DataSnapshot snapshot) {
+                    ready = true;
+                    touch();
+                }
+
+                @Override
+                public void onCancelled(DatabaseError error) {
+                    log.warn("Replica of {} failed to warm up: {}", path, error.getMessage());
+                }
+            });
+        }
+
+        private void detach() {
+            if (listener != null) {
+                reference().removeEventListener(listener);
+            }
+            ready = false;
+        }
+
+        private void put(DataSnapshot snapshot) {
+            children.put(snapshot.getKey(), snapshot);
+            touch();
+        }
+
+        private void touch() {
+            events.incrementAndGet();
+            lastEventAt = System.currentTimeMillis();
+        }
+
+        Collection<DataSnapshot> children() {
+            return children.values();
+        }
+
+        DataSnapshot child(String key) {
+            return children.get(key);
+        }
+
+        /**
+         * Rebuilds the whole node from its mirrored children, or {@code null} if it has none.
+         */
+        <T> T value(Class<T> clazz) {
+            if (children.isEmpty()) {
+                return null;
+            }
+            Map<String, Object> node = new LinkedHashMap<>();
+            children.forEach((key, snapshot) -> node.put(key, snapshot.getValue()));
+            return objectMapper.convertValue(node, clazz);
+        }
+    }
+}
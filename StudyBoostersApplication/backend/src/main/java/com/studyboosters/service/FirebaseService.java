@@ -2,201 +2,421 @@ package com.studyboosters.service;
 
 import com.google.firebase.database.*;
 import com.studyboosters.exception.ResourceNotFoundException;
+import com.studyboosters.store.DataStore;
+import com.studyboosters.store.ModelMapping;
+import com.studyboosters.store.StoreGuard;
+import com.studyboosters.store.StoreMetrics;
+import com.studyboosters.store.StoreQuery;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
 
+/**
+ * {@link DataStore} backed by the Firebase Realtime Database.
+ * Every operation returns a {@link CompletableFuture} that is completed from the
+ * Firebase callback, so no caller thread is parked while waiting on network I/O.
+ * Reads of paths mirrored by {@link FirebaseReplica} are answered from memory.
+ * Every operation is timed through {@link StoreMetrics}; calls that reach Firebase run inside
+ * the {@link StoreGuard} bulkheads, so a stalled database yields fast 503s instead of a pile-up.
+ * Concurrent reads of the same path share one fetch through {@link ReadCoalescer}.
+ * This SDK has no server-side increments, so counter deltas are applied with transactions.
+ */
+@Slf4j
 @Service
 @RequiredArgsConstructor
-public class FirebaseService {
+@ConditionalOnProperty(name = "storage.backend", havingValue = "firebase", matchIfMissing = true)
+public class FirebaseService implements DataStore {
 
     private final FirebaseDatabase firebaseDatabase;
-    private static final String ROOT_PATH = "study_boosters";
+    private final FirebaseReplica replica;
+    private final StoreMetrics metrics;
+    private final StoreGuard guard;
+    private final ReadCoalescer coalescer;
+    static final String ROOT_PATH = "study_boosters";
 
     /**
      * Get a list of items from Firebase
      */
-    public <T> List<T> getList(String path, Class<T> clazz) throws ExecutionException, InterruptedException {
-        CompletableFuture<List<T>> future = new CompletableFuture<>();
-        DatabaseReference ref = firebaseDatabase.getReference(ROOT_PATH + "/" + path);
+    @Override
+    public <T> CompletableFuture<List<T>> getList(String path, Class<T> clazz) {
+        return metrics.timed("getList", path, () -> {
+            FirebaseReplica.Mirror mirror = replica.ready(path);
+            if (mirror != null) {
+                List<T> items = new ArrayList<>();
+                for (DataSnapshot snapshot : mirror.children()) {
+                    items.add(toModel(snapshot, clazz));
+                }
+                metrics.listSize("getList", path, items.size());
+                return CompletableFuture.completedFuture(items);
+            }
 
-        ref.addListenerForSingleValueEvent(new ValueEventListener() {
-            @Override
-            public void onDataChange(DataSnapshot dataSnapshot) {
+            return readSnapshot("getList", path).thenApply(dataSnapshot -> {
                 List<T> items = new ArrayList<>();
                 for (DataSnapshot snapshot : dataSnapshot.getChildren()) {
-                    T item = snapshot.getValue(clazz);
-                    // Set the ID from the key
-                    try {
-                        item.getClass().getMethod("setId", String.class).invoke(item, snapshot.getKey());
-                    } catch (Exception e) {
-                        System.err.println("Could not set ID: " + e.getMessage());
+                    items.add(toModel(snapshot, clazz));
+                }
+                metrics.listSize("getList", path, items.size());
+                return items;
+            });
+        });
+    }
+
+    /**
+     * Run an ordered query; items come back in query order (ascending)
+     */
+    @Override
+    public <T> CompletableFuture<List<T>> query(String path, StoreQuery spec, Class<T> clazz) {
+        return metrics.timed("query", path, () -> guard.read(() -> {
+            CompletableFuture<List<T>> future = new CompletableFuture<>();
+            Query query = spec.apply(firebaseDatabase.getReference(ROOT_PATH + "/" + path));
+
+            query.addListenerForSingleValueEvent(new ValueEventListener() {
+                @Override
+                public void onDataChange(DataSnapshot dataSnapshot) {
+                    List<T> items = new ArrayList<>();
+                    for (DataSnapshot snapshot : dataSnapshot.getChildren()) {
+                        items.add(toModel(snapshot, clazz));
                     }
-                    items.add(item);
+                    metrics.listSize("query", path, items.size());
+                    future.complete(items);
                 }
-                future.complete(items);
-            }
 
-            @Override
-            public void onCancelled(DatabaseError databaseError) {
-                future.completeExceptionally(new RuntimeException("Firebase error: " + databaseError.getMessage()));
-            }
-        });
+                @Override
+                public void onCancelled(DatabaseError databaseError) {
+                    future.completeExceptionally(firebaseError("query", path, databaseError));
+                }
+            });
 
-        return future.get();
+            return future;
+        }));
     }
 
     /**
      * Get a single item from Firebase by ID
      */
-    public <T> T getById(String path, String id, Class<T> clazz) throws ExecutionException, InterruptedException {
-        CompletableFuture<T> future = new CompletableFuture<>();
-        DatabaseReference ref = firebaseDatabase.getReference(ROOT_PATH + "/" + path + "/" + id);
+    @Override
+    public <T> CompletableFuture<T> getById(String path, String id, Class<T> clazz) {
+        return metrics.timed("getById", path, () -> {
+            FirebaseReplica.Mirror mirror = replica.ready(path);
+            if (mirror != null) {
+                DataSnapshot snapshot = mirror.child(id);
+                return snapshot != null
+                        ? CompletableFuture.completedFuture(toModel(snapshot, clazz))
+                        : CompletableFuture.failedFuture(new ResourceNotFoundException("Item not found with ID: " + id));
+            }
 
-        ref.addListenerForSingleValueEvent(new ValueEventListener() {
-            @Override
-            public void onDataChange(DataSnapshot dataSnapshot) {
-                if (dataSnapshot.exists()) {
-                    T item = dataSnapshot.getValue(clazz);
-                    try {
-                        item.getClass().getMethod("setId", String.class).invoke(item, dataSnapshot.getKey());
-                    } catch (Exception e) {
-                        System.err.println("Could not set ID: " + e.getMessage());
-                    }
-                    future.complete(item);
-                } else {
-                    future.completeExceptionally(new ResourceNotFoundException("Item not found with ID: " + id));
+            return readSnapshot("getById", path + "/" + id).thenApply(dataSnapshot -> {
+                if (!dataSnapshot.exists()) {
+                    throw new ResourceNotFoundException("Item not found with ID: " + id);
                 }
-            }
+                return toModel(dataSnapshot, clazz);
+            });
+        });
+    }
 
-            @Override
-            public void onCancelled(DatabaseError databaseError) {
-                future.completeExceptionally(new RuntimeException("Firebase error: " + databaseError.getMessage()));
+    /**
+     * Get a single value (for settings)
+     */
+    @Override
+    public <T> CompletableFuture<T> getValue(String path, Class<T> clazz) {
+        return metrics.timed("getValue", path, () -> {
+            FirebaseReplica.Mirror mirror = replica.ready(path);
+            if (mirror != null) {
+                return CompletableFuture.completedFuture(mirror.value(clazz));
             }
-        });
 
-        return future.get();
+            return readSnapshot("getValue", path)
+                    .thenApply(dataSnapshot -> dataSnapshot.exists() ? dataSnapshot.getValue(clazz) : null);
+        });
     }
 
     /**
-     * Get a single value (for settings)
+     * Push a new item to Firebase (generates new key)
      */
-    public <T> T getValue(String path, Class<T> clazz) throws ExecutionException, InterruptedException {
-        CompletableFuture<T> future = new CompletableFuture<>();
-        DatabaseReference ref = firebaseDatabase.getReference(ROOT_PATH + "/" + path);
+    @Override
+    public <T> CompletableFuture<String> push(String path, T data) {
+        coalescer.invalidate(path);
+        return metrics.timed("push", path, () -> guard.write(() -> {
+            CompletableFuture<String> future = new CompletableFuture<>();
+            DatabaseReference ref = firebaseDatabase.getReference(ROOT_PATH + "/" + path);
+            DatabaseReference newRef = ref.push();
 
-        ref.addListenerForSingleValueEvent(new ValueEventListener() {
-            @Override
-            public void onDataChange(DataSnapshot dataSnapshot) {
-                if (dataSnapshot.exists()) {
-                    T value = dataSnapshot.getValue(clazz);
-                    future.complete(value);
+            newRef.setValue(data, (databaseError, databaseReference) -> {
+                if (databaseError != null) {
+                    future.completeExceptionally(firebaseError("push", path, databaseError));
                 } else {
-                    future.complete(null);
+                    future.complete(newRef.getKey());
                 }
-            }
+            });
 
-            @Override
-            public void onCancelled(DatabaseError databaseError) {
-                future.completeExceptionally(new RuntimeException("Firebase error: " + databaseError.getMessage()));
-            }
-        });
+            return future;
+        })).whenComplete((v, e) -> coalescer.invalidate(path));
+    }
 
-        return future.get();
+    /**
+     * Set a value at a specific path
+     */
+    @Override
+    public <T> CompletableFuture<Void> setValue(String path, T data) {
+        coalescer.invalidate(path);
+        return metrics.timed("setValue", path, () -> guard.write(() -> {
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            DatabaseReference ref = firebaseDatabase.getReference(ROOT_PATH + "/" + path);
+
+            ref.setValue(data, completionListener("setValue", path, future));
+
+            return future;
+        })).whenComplete((v, e) -> coalescer.invalidate(path));
     }
 
     /**
-     * Push a new item to Firebase (generates new key)
+     * Update specific fields
      */
-    public <T> String push(String path, T data) throws ExecutionException, InterruptedException {
-        CompletableFuture<String> future = new CompletableFuture<>();
-        DatabaseReference ref = firebaseDatabase.getReference(ROOT_PATH + "/" + path);
-        DatabaseReference newRef = ref.push();
+    @Override
+    public CompletableFuture<Void> update(String path, String id, Map<String, Object> updates) {
+        coalescer.invalidate(path + "/" + id);
+        return metrics.timed("update", path, () -> guard.write(() -> {
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            DatabaseReference ref = firebaseDatabase.getReference(ROOT_PATH + "/" + path + "/" + id);
 
-        newRef.setValue(data, (databaseError, databaseReference) -> {
-            if (databaseError != null) {
-                future.completeExceptionally(new RuntimeException("Firebase error: " + databaseError.getMessage()));
-            } else {
-                future.complete(newRef.getKey());
-            }
-        });
+            ref.updateChildren(updates, completionListener("update", path, future));
 
-        return future.get();
+            return future;
+        })).whenComplete((v, e) -> coalescer.invalidate(path + "/" + id));
     }
 
     /**
-     * Set a value at a specific path
+     * Generate a push key under a path without writing anything
      */
-    public <T> void setValue(String path, T data) throws ExecutionException, InterruptedException {
-        CompletableFuture<Void> future = new CompletableFuture<>();
-        DatabaseReference ref = firebaseDatabase.getReference(ROOT_PATH + "/" + path);
+    @Override
+    public String newKey(String path) {
+        return firebaseDatabase.getReference(ROOT_PATH + "/" + path).push().getKey();
+    }
 
-        ref.setValue(data, (databaseError, databaseReference) -> {
-            if (databaseError != null) {
-                future.completeExceptionally(new RuntimeException("Firebase error: " + databaseError.getMessage()));
+    /**
+     * Atomically apply a multi-path update relative to the root (null values delete); increments
+     * are applied once the rest is written
+     */
+    @Override
+    public CompletableFuture<Void> updateChildren(Map<String, Object> updates) {
+        Map<String, Object> values = new HashMap<>();
+        Map<String, Long> deltas = new LinkedHashMap<>();
+        updates.forEach((path, value) -> {
+            if (value instanceof Increment) {
+                deltas.put(path, ((Increment) value).delta);
             } else {
-                future.complete(null);
+                values.put(path, value);
             }
         });
+        if (values.isEmpty()) {
+            return applyIncrements(deltas);
+        }
+
+        String tag = updatesPath(values);
+        values.keySet().forEach(coalescer::invalidate);
+        return metrics.timed("updateChildren", tag, () -> guard.write(() -> {
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            DatabaseReference ref = firebaseDatabase.getReference(ROOT_PATH);
+
+            ref.updateChildren(values, completionListener("updateChildren", tag, future));
+
+            return future;
+        })).whenComplete((v, e) -> values.keySet().forEach(coalescer::invalidate))
+                .thenCompose(v -> applyIncrements(deltas));
+    }
 
-        future.get();
+    @Override
+    public Object increment(long delta) {
+        return new Increment(delta);
     }
 
     /**
-     * Update specific fields
+     * Run a Firebase transaction on a single path
      */
-    public void update(String path, String id, Map<String, Object> updates)
-            throws ExecutionException, InterruptedException {
-        CompletableFuture<Void> future = new CompletableFuture<>();
-        DatabaseReference ref = firebaseDatabase.getReference(ROOT_PATH + "/" + path + "/" + id);
+    @Override
+    public <T> CompletableFuture<Boolean> transaction(String path, Class<T> clazz, UnaryOperator<T> update) {
+        coalescer.invalidate(path);
+        return metrics.timed("transaction", path, () -> guard.write(() -> {
+            CompletableFuture<Boolean> future = new CompletableFuture<>();
+            AtomicBoolean changed = new AtomicBoolean();
+            DatabaseReference ref = firebaseDatabase.getReference(ROOT_PATH + "/" + path);
 
-        ref.updateChildren(updates, (databaseError, databaseReference) -> {
-            if (databaseError != null) {
-                future.completeExceptionally(new RuntimeException("Firebase error: " + databaseError.getMessage()));
-            } else {
-                future.complete(null);
+            ref.runTransaction(new Transaction.Handler() {
+                @Override
+                public Transaction.Result doTransaction(MutableData currentData) {
+                    T current = currentData.getValue(clazz);
+                    T next = update.apply(current);
+                    changed.set(!Objects.equals(current, next));
+                    if (changed.get()) {
+                        currentData.setValue(next);
+                    }
+                    // Never abort: the first attempt may see a stale local value, and only a
+                    // committed attempt is checked against the server
+                    return Transaction.success(currentData);
+                }
+
+                @Override
+                public void onComplete(DatabaseError databaseError, boolean committed, DataSnapshot currentData) {
+                    if (databaseError != null) {
+                        future.completeExceptionally(firebaseError("transaction", path, databaseError));
+                    } else {
+                        future.complete(committed && changed.get());
+                    }
+                }
+            }, false);
+
+            return future;
+        })).whenComplete((v, e) -> coalescer.invalidate(path));
+    }
+
+    /**
+     * Keep a value listener on a path
+     */
+    @Override
+    public <T> Runnable watchValue(String path, Class<T> clazz, Consumer<T> listener) {
+        DatabaseReference ref = firebaseDatabase.getReference(ROOT_PATH + "/" + path);
+
+        ValueEventListener valueListener = ref.addValueEventListener(new ValueEventListener() {
+            @Override
+            public void onDataChange(DataSnapshot dataSnapshot) {
+                listener.accept(dataSnapshot.exists() ? dataSnapshot.getValue(clazz) : null);
+            }
+
+            @Override
+            public void onCancelled(DatabaseError databaseError) {
+                metrics.error("watchValue", path, databaseError.getCode());
+                log.warn("Listener on {} cancelled: {}", path, databaseError.getMessage());
             }
         });
 
-        future.get();
+        return () -> ref.removeEventListener(valueListener);
     }
 
     /**
      * Delete an item
      */
-    public void delete(String path, String id) throws ExecutionException, InterruptedException {
-        CompletableFuture<Void> future = new CompletableFuture<>();
-        DatabaseReference ref = firebaseDatabase.getReference(ROOT_PATH + "/" + path + "/" + id);
+    @Override
+    public CompletableFuture<Void> delete(String path, String id) {
+        coalescer.invalidate(path + "/" + id);
+        return metrics.timed("delete", path, () -> guard.write(() -> {
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            DatabaseReference ref = firebaseDatabase.getReference(ROOT_PATH + "/" + path + "/" + id);
 
-        ref.removeValue((databaseError, databaseReference) -> {
-            if (databaseError != null) {
-                future.completeExceptionally(new RuntimeException("Firebase error: " + databaseError.getMessage()));
-            } else {
-                future.complete(null);
-            }
-        });
+            ref.removeValue(completionListener("delete", path, future));
 
-        future.get();
+            return future;
+        })).whenComplete((v, e) -> coalescer.invalidate(path + "/" + id));
     }
 
     /**
      * Clear entire database (admin only!)
      */
-    public void clearDatabase() throws ExecutionException, InterruptedException {
-        CompletableFuture<Void> future = new CompletableFuture<>();
-        DatabaseReference ref = firebaseDatabase.getReference(ROOT_PATH);
+    @Override
+    public CompletableFuture<Void> clearDatabase() {
+        coalescer.invalidate("");
+        return metrics.timed("clearDatabase", "", () -> guard.admin(() -> {
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            DatabaseReference ref = firebaseDatabase.getReference(ROOT_PATH);
+
+            ref.removeValue(completionListener("clearDatabase", "", future));
+
+            return future;
+        })).whenComplete((v, e) -> coalescer.invalidate(""));
+    }
+
+    // The rest of the update is already written, so a failed delta is reported rather than failing
+    // the caller, who would otherwise retry the whole write
+    private CompletableFuture<Void> applyIncrements(Map<String, Long> deltas) {
+        CompletableFuture<?>[] applied = deltas.entrySet().stream()
+                .map(delta -> transaction(delta.getKey(), Long.class, current -> current != null
+                        ? Long.valueOf(current + delta.getValue())
+                        : delta.getValue() > 0 ? delta.getValue() : null)
+                        .exceptionally(e -> {
+                            log.warn("Counter {} not updated by {}: {}", delta.getKey(), delta.getValue(),
+                                    e.getMessage());
+                            return false;
+                        }))
+                .toArray(CompletableFuture[]::new);
+        return CompletableFuture.allOf(applied);
+    }
+
+    // Single-value read through the guard, shared with concurrent reads of the same path
+    private CompletableFuture<DataSnapshot> readSnapshot(String op, String path) {
+        return coalescer.read(path, () -> guard.read(() -> {
+            CompletableFuture<DataSnapshot> future = new CompletableFuture<>();
+            DatabaseReference ref = firebaseDatabase.getReference(ROOT_PATH + "/" + path);
+
+            ref.addListenerForSingleValueEvent(new ValueEventListener() {
+                @Override
+                public void onDataChange(DataSnapshot dataSnapshot) {
+                    future.complete(dataSnapshot);
+                }
+
+                @Override
+                public void onCancelled(DatabaseError databaseError) {
+                    future.completeExceptionally(firebaseError(op, path, databaseError));
+                }
+            });
 
-        ref.removeValue((databaseError, databaseReference) -> {
+            return future;
+        }));
+    }
+
+    /**
+     * Maps one snapshot into a model with the child key as id; every read goes through here.
+     */
+    public static <T> T toModel(DataSnapshot snapshot, Class<T> clazz) {
+        ModelMapping.ModelReader<T> reader = ModelMapping.reader(clazz);
+        if (reader != null) {
+            // Plain maps out of the snapshot, then a precompiled reader: no bean reflection per row
+            return reader.read(snapshot.getKey(), ModelMapping.record(snapshot.getValue()));
+        }
+        return ModelMapping.withId(snapshot.getValue(clazz), snapshot.getKey());
+    }
+
+    private DatabaseReference.CompletionListener completionListener(String op, String path,
+            CompletableFuture<Void> future) {
+        return (databaseError, databaseReference) -> {
             if (databaseError != null) {
-                future.completeExceptionally(new RuntimeException("Firebase error: " + databaseError.getMessage()));
+                future.completeExceptionally(firebaseError(op, path, databaseError));
             } else {
                 future.complete(null);
             }
-        });
+        };
+    }
+
+    private RuntimeException firebaseError(String op, String path, DatabaseError databaseError) {
+        metrics.error(op, path, databaseError.getCode());
+        return new RuntimeException("Firebase error: " + databaseError.getMessage());
+    }
+
+    private static final class Increment {
+        private final long delta;
 
-        future.get();
+        private Increment(long delta) {
+            this.delta = delta;
+        }
+    }
+
+    // Multi-path writes are tagged with their collection when they all share one
+    private static String updatesPath(Map<String, Object> updates) {
+        String collection = null;
+        for (String key : updates.keySet()) {
+            int slash = key.indexOf('/');
+            String first = slash < 0 ? key : key.substring(0, slash);
+            if (collection == null) {
+                collection = first;
+            } else if (!collection.equals(first)) {
+                return "multi";
+            }
+        }
+        return collection != null ? collection : "";
     }
 }
@@ -0,0 +1,27 @@
+package com.studyboosters.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * One-time upgrade step that builds the moderation queue and per-status counts from existing files.
+ * Enable with {@code storage.files.backfill-moderation-index=true} for a single start-up.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "storage.files.backfill-moderation-index", havingValue = "true")
+public class ModerationIndexBackfillRunner implements ApplicationRunner {
+
+    private final StudyFileService studyFileService;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        int pending = studyFileService.rebuildModerationIndex().join();
+        log.info("Rebuilt moderation queue with {} pending files", pending);
+    }
+}
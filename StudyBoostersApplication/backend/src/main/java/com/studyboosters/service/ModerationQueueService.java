@@ -0,0 +1,218 @@
+package com.studyboosters.service;
+
+import com.studyboosters.dto.response.PageResponse;
+import com.studyboosters.model.StudyFile;
+import com.studyboosters.store.DataStore;
+import com.studyboosters.store.StoreQuery;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The moderation queue ({@code pending_files/{fileId}}, metadata of files awaiting review, in
+ * upload order since file ids are chronological push keys) and per-status file counts
+ * ({@code file_counts/{status}}); the dashboard never scans {@code files}. Queue entries are
+ * staged into the same multi-path writes that change the files, so they move atomically with them.
+ * Counts cannot be part of those writes on Firebase: they are applied afterwards, one transaction
+ * per status. A count change that fails is logged and marks the counts stale, and the next
+ * reconcile run recomputes them from the files.
+ * Callers first claim the status change with a transaction on {@code files/{id}/status}, so
+ * moderators racing on one file stage it once between them.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ModerationQueueService {
+
+    static final String PENDING_PATH = "pending_files";
+    static final String COUNTS_PATH = "file_counts";
+
+    private final DataStore dataStore;
+    private final DownloadCounterService downloadCounterService;
+
+    // Set when a count change failed; cleared once the counts are recomputed
+    private final AtomicBoolean countsStale = new AtomicBoolean();
+
+    /**
+     * Stages a newly published file. Count changes are summed into {@code counts}; apply them with
+     * {@link #applyCounts} once the write has succeeded.
+     */
+    void stageAdded(String fileId, StudyFile file, Map<String, Object> updates, Map<String, Integer> counts) {
+        if ("Pending".equals(file.getStatus())) {
+            updates.put(PENDING_PATH + "/" + fileId, queueEntry(file));
+        }
+        counts.merge(file.getStatus(), 1, Integer::sum);
+    }
+
+    /**
+     * Stages a status change of {@code file} (already carrying its new status) from {@code from}.
+     */
+    void stageStatusChange(String fileId, StudyFile file, String from, Map<String, Object> updates,
+            Map<String, Integer> counts) {
+        if (file.getStatus().equals(from)) {
+            return;
+        }
+        if ("Pending".equals(from)) {
+            updates.put(PENDING_PATH + "/" + fileId, null);
+        } else if ("Pending".equals(file.getStatus())) {
+            updates.put(PENDING_PATH + "/" + fileId, queueEntry(file));
+        }
+        counts.merge(from, -1, Integer::sum);
+        counts.merge(file.getStatus(), 1, Integer::sum);
+    }
+
+    void stageRemoved(String fileId, StudyFile file, Map<String, Object> updates, Map<String, Integer> counts) {
+        updates.put(PENDING_PATH + "/" + fileId, null);
+        counts.merge(file.getStatus(), -1, Integer::sum);
+    }
+
+    /**
+     * Applies the summed count changes of a successful write. Never fails: the files are already
+     * written, so a count that cannot be changed is reported and left to {@link #reconcileCounts}.
+     */
+    CompletableFuture<Void> applyCounts(Map<String, Integer> counts) {
+        CompletableFuture<?>[] applied = counts.entrySet().stream()
+                .filter(count -> count.getKey() != null && count.getValue() != 0)
+                .map(count -> dataStore.transaction(COUNTS_PATH + "/" + count.getKey(), Long.class,
+                        current -> (current != null ? current : 0L) + count.getValue())
+                        .exceptionally(e -> {
+                            countsStale.set(true);
+                            log.warn("File count {} not changed by {}, will reconcile: {}", count.getKey(),
+                                    count.getValue(), e.getMessage());
+                            return false;
+                        }))
+                .toArray(CompletableFuture[]::new);
+        return CompletableFuture.allOf(applied);
+    }
+
+    @Scheduled(fixedDelayString = "${storage.files.count-reconcile-interval-ms:60000}")
+    public void scheduledReconcile() {
+        if (countsStale.get()) {
+            reconcileCounts().whenComplete((v, e) -> {
+                if (e != null) {
+                    log.warn("File count reconcile failed: {}", e.getMessage());
+                } else {
+                    log.info("Recomputed file counts after a failed count change");
+                }
+            });
+        }
+    }
+
+    /**
+     * Recomputes {@code file_counts} from every file record; reads the whole collection, so it only
+     * runs after a count change has failed. The queue is left alone since it never drifts.
+     */
+    public CompletableFuture<Void> reconcileCounts() {
+        countsStale.set(false);
+        return dataStore.getList(StudyFileService.FILES_PATH, StudyFile.class)
+                .thenCompose(files -> {
+                    Map<String, Long> counts = countsOf(files);
+                    return dataStore.setValue(COUNTS_PATH, counts.isEmpty() ? null : counts);
+                })
+                .whenComplete((v, e) -> {
+                    if (e != null) {
+                        countsStale.set(true);
+                    }
+                });
+    }
+
+    /**
+     * Oldest-first page of files awaiting review. Pass {@code nextCursor} back as {@code cursor}.
+     */
+    public CompletableFuture<PageResponse<StudyFile>> getPending(int limit, String cursor) {
+        // Bounds are inclusive, so fetch one extra to skip the cursor entry and one to detect more
+        StoreQuery query = StoreQuery.orderByKey().limitToFirst(limit + (cursor != null ? 2 : 1));
+        if (cursor != null) {
+            query.startAt(cursor);
+        }
+
+        return dataStore.query(PENDING_PATH, query, StudyFile.class).thenApply(files -> {
+            files.removeIf(file -> file.getId().equals(cursor));
+            boolean hasMore = files.size() > limit;
+            List<StudyFile> page = new ArrayList<>(files.subList(0, Math.min(limit, files.size())));
+            page.forEach(downloadCounterService::merge);
+
+            String nextCursor = hasMore ? page.get(page.size() - 1).getId() : null;
+            return new PageResponse<>(page, nextCursor, null, hasMore);
+        });
+    }
+
+    /**
+     * Number of files per status, from the maintained counters (one small read).
+     */
+    public CompletableFuture<Map<String, Long>> getCounts() {
+        return dataStore.getValue(COUNTS_PATH, Map.class).thenApply(stored -> {
+            Map<String, Long> counts = new LinkedHashMap<>();
+            counts.put("Pending", 0L);
+            counts.put("Approved", 0L);
+            if (stored != null) {
+                for (Object entry : stored.entrySet()) {
+                    Map.Entry<?, ?> count = (Map.Entry<?, ?>) entry;
+                    if (count.getValue() instanceof Number) {
+                        counts.put(String.valueOf(count.getKey()), ((Number) count.getValue()).longValue());
+                    }
+                }
+            }
+            return counts;
+        });
+    }
+
+    /**
+     * Rebuilds the queue and the counts from every file record, replacing both in one write.
+     * Meant for the first start-up after upgrading, or to repair counts after drift.
+     */
+    public CompletableFuture<Integer> rebuild(List<StudyFile> files) {
+        Map<String, Object> pending = new HashMap<>();
+        for (StudyFile file : files) {
+            if ("Pending".equals(file.getStatus())) {
+                pending.put(file.getId(), queueEntry(file));
+            }
+        }
+        Map<String, Long> counts = countsOf(files);
+
+        Map<String, Object> updates = new HashMap<>();
+        updates.put(PENDING_PATH, pending.isEmpty() ? null : pending);
+        updates.put(COUNTS_PATH, counts.isEmpty() ? null : counts);
+        return dataStore.updateChildren(updates).thenApply(v -> {
+            countsStale.set(false);
+            return pending.size();
+        });
+    }
+
+    private static Map<String, Long> countsOf(List<StudyFile> files) {
+        Map<String, Long> counts = new HashMap<>();
+        for (StudyFile file : files) {
+            if (file.getStatus() != null) {
+                counts.merge(file.getStatus(), 1L, Long::sum);
+            }
+        }
+        return counts;
+    }
+
+    // The queue's copy of a file: listing metadata only, without id, payload or sort keys
+    private static StudyFile queueEntry(StudyFile file) {
+        StudyFile entry = new StudyFile();
+        entry.setTitle(file.getTitle());
+        entry.setSubject(file.getSubject());
+        entry.setSemester(file.getSemester());
+        entry.setUploader(file.getUploader());
+        entry.setUploaderId(file.getUploaderId());
+        entry.setFileType(file.getFileType());
+        entry.setFileSize(file.getFileSize());
+        entry.setUploadDate(file.getUploadDate());
+        entry.setDownloadCount(file.getDownloadCount());
+        entry.setDescription(file.getDescription());
+        entry.setStatus(file.getStatus());
+        entry.setContentHash(file.getContentHash());
+        return entry;
+    }
+}
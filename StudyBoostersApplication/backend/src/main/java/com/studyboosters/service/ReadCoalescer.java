@@ -0,0 +1,140 @@
+package com.studyboosters.service;
+
+import com.google.firebase.database.DataSnapshot;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight for {@link FirebaseService} reads: concurrent reads of the same path share one
+ * Firebase fetch, and with {@code firebase.coalesce.reuse-ms} a finished fetch keeps answering
+ * for that long, after which it is dropped. File contents are never kept past their fetch: they are
+ * large and each is read once per download. Snapshots are immutable and every caller maps its own
+ * models from them, so sharing never leaks one caller's changes to another. Writes through this
+ * server drop the shared entries they touch, so a read issued after a write never joins a fetch
+ * from before it.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "storage.backend", havingValue = "firebase", matchIfMissing = true)
+public class ReadCoalescer {
+
+    private static final List<String> BLOB_PATHS = List.of(
+            ContentBlobService.CONTENT_PATH + "/", StudyFileService.BLOBS_PATH + "/");
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${firebase.coalesce.reuse-ms:0}")
+    private long reuseMs;
+
+    private final Map<String, Flight> flights = new ConcurrentHashMap<>();
+    private final AtomicLong fetched = new AtomicLong();
+    private final AtomicLong joined = new AtomicLong();
+    private final AtomicLong reused = new AtomicLong();
+
+    /**
+     * The snapshot at {@code path}, from a fetch already in flight (or recently finished) when
+     * there is one, otherwise from {@code fetch}.
+     */
+    public CompletableFuture<DataSnapshot> read(String path, Supplier<CompletableFuture<DataSnapshot>> fetch) {
+        while (true) {
+            Flight current = flights.get(path);
+            if (current != null) {
+                if (!current.future.isDone()) {
+                    saved(path, "inflight", joined);
+                    return current.future.copy();
+                }
+                if (current.fresh()) {
+                    saved(path, "reused", reused);
+                    return current.future.copy();
+                }
+                flights.remove(path, current);
+                continue;
+            }
+
+            Flight flight = new Flight();
+            if (flights.putIfAbsent(path, flight) != null) {
+                continue;
+            }
+            fetched.incrementAndGet();
+
+            CompletableFuture<DataSnapshot> pending;
+            try {
+                pending = fetch.get();
+            } catch (RuntimeException e) {
+                pending = CompletableFuture.failedFuture(e);
+            }
+            pending.whenComplete((snapshot, e) -> {
+                if (e != null || reuseMs <= 0 || isBlob(path)) {
+                    flights.remove(path, flight);
+                } else {
+                    flight.completedAt = System.nanoTime();
+                    CompletableFuture.delayedExecutor(reuseMs, TimeUnit.MILLISECONDS)
+                            .execute(() -> flights.remove(path, flight));
+                }
+                if (e != null) {
+                    flight.future.completeExceptionally(e);
+                } else {
+                    flight.future.complete(snapshot);
+                }
+            });
+            return flight.future.copy();
+        }
+    }
+
+    /**
+     * Drops shared reads at, above or below a path that is being written.
+     */
+    public void invalidate(String path) {
+        flights.forEach((key, flight) -> {
+            if (overlaps(key, path)) {
+                flights.remove(key, flight);
+            }
+        });
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("inFlight", flights.values().stream().filter(flight -> !flight.future.isDone()).count());
+        stats.put("reuseMillis", reuseMs);
+        stats.put("fetched", fetched.get());
+        stats.put("joinedInFlight", joined.get());
+        stats.put("reused", reused.get());
+        return stats;
+    }
+
+    private void saved(String path, String source, AtomicLong counter) {
+        counter.incrementAndGet();
+        int slash = path.indexOf('/');
+        meterRegistry.counter("store.reads.saved", "path", slash < 0 ? path : path.substring(0, slash),
+                "source", source).increment();
+    }
+
+    private static boolean isBlob(String path) {
+        return BLOB_PATHS.stream().anyMatch(path::startsWith);
+    }
+
+    private static boolean overlaps(String a, String b) {
+        return a.equals(b) || b.isEmpty() || a.startsWith(b + "/") || b.startsWith(a + "/");
+    }
+
+    private final class Flight {
+        private final CompletableFuture<DataSnapshot> future = new CompletableFuture<>();
+        private volatile long completedAt;
+
+        private boolean fresh() {
+            return completedAt != 0 && System.nanoTime() - completedAt < TimeUnit.MILLISECONDS.toNanos(reuseMs);
+        }
+    }
+}
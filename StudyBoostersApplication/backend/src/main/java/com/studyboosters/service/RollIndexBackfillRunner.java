@@ -0,0 +1,27 @@
+package com.studyboosters.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * One-time upgrade step that indexes existing users by roll number.
+ * Enable with {@code auth.users.backfill-roll-index=true} for a single start-up.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "auth.users.backfill-roll-index", havingValue = "true")
+public class RollIndexBackfillRunner implements ApplicationRunner {
+
+    private final AuthService authService;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        int indexed = authService.backfillRollIndex().join();
+        log.info("Indexed {} users in users_by_roll", indexed);
+    }
+}
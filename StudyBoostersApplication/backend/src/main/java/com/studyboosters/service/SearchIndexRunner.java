@@ -0,0 +1,30 @@
+package com.studyboosters.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * Builds the file search index at start-up. Runs in the background; searches made before it
+ * finishes see only files added since start-up.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SearchIndexRunner implements ApplicationRunner {
+
+    private final FileSearchService fileSearchService;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        fileSearchService.rebuild().whenComplete((count, e) -> {
+            if (e != null) {
+                log.warn("Search index rebuild failed: {}", e.getMessage());
+            } else {
+                log.info("Indexed {} files for search", count);
+            }
+        });
+    }
+}
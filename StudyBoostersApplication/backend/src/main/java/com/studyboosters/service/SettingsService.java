@@ -1,44 +1,101 @@
 package com.studyboosters.service;
 
 import com.studyboosters.model.Settings;
+import com.studyboosters.store.DataStore;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
 
+/**
+ * Settings are served from an in-process snapshot that a value listener keeps current, so reads
+ * (including the manual-review check on every upload) cost no I/O. Writes update the snapshot as
+ * soon as they succeed; until the listener's first event, reads go to the store.
+ */
 @Service
 @RequiredArgsConstructor
 public class SettingsService {
 
-    private final FirebaseService firebaseService;
+    private static final String SETTINGS_PATH = "settings";
+
+    private final DataStore dataStore;
     private final ActivityLogService activityLogService;
+    private final CollectionVersions collectionVersions;
 
-    public Settings getSettings() throws ExecutionException, InterruptedException {
-        Settings settings = firebaseService.getValue("settings", Settings.class);
-        if (settings == null) {
-            settings = new Settings(true, "");
+    private final AtomicReference<Settings> snapshot = new AtomicReference<>();
+    private Runnable unwatch;
+
+    @PostConstruct
+    public void start() {
+        unwatch = dataStore.watchValue(SETTINGS_PATH, Settings.class, settings -> {
+            snapshot.set(withDefaults(settings));
+            // Also catches edits made outside this server
+            collectionVersions.bump(CollectionVersions.SETTINGS);
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (unwatch != null) {
+            unwatch.run();
+        }
+    }
+
+    public CompletableFuture<Settings> getSettings() {
+        Settings current = snapshot.get();
+        if (current != null) {
+            return CompletableFuture.completedFuture(copy(current));
         }
-        return settings;
+        return dataStore.getValue(SETTINGS_PATH, Settings.class).thenApply(this::withDefaults);
     }
 
-    public boolean isManualReviewEnabled() throws ExecutionException, InterruptedException {
-        Settings settings = getSettings();
-        return settings.getManualReview() != null ? settings.getManualReview() : true;
+    public CompletableFuture<Boolean> isManualReviewEnabled() {
+        return getSettings().thenApply(Settings::getManualReview);
     }
 
-    public void updateSettings(Settings settings) throws ExecutionException, InterruptedException {
-        firebaseService.setValue("settings", settings);
-        activityLogService.addLog("Settings Update", "Admin updated system configuration");
+    public CompletableFuture<Void> updateSettings(Settings settings) {
+        Settings stored = copy(settings);
+        return dataStore.setValue(SETTINGS_PATH, stored)
+                .whenComplete((v, e) -> collectionVersions.bump(CollectionVersions.SETTINGS))
+                .thenCompose(v -> {
+                    snapshot.set(withDefaults(stored));
+                    return activityLogService.addLog("Settings Update", "Admin updated system configuration");
+                });
     }
 
-    public void toggleManualReview() throws ExecutionException, InterruptedException {
-        Settings settings = getSettings();
-        boolean newState = !settings.getManualReview();
-        settings.setManualReview(newState);
+    public CompletableFuture<Settings> toggleManualReview() {
+        return getSettings().thenCompose(settings -> {
+            boolean newState = Boolean.FALSE.equals(settings.getManualReview());
+            settings.setManualReview(newState);
+
+            return dataStore.setValue(SETTINGS_PATH, settings)
+                    .whenComplete((v, e) -> collectionVersions.bump(CollectionVersions.SETTINGS))
+                    .thenCompose(v -> {
+                        snapshot.set(copy(settings));
+                        return activityLogService.addLog("Mode Change",
+                                "Manual Review set to " + (newState ? "ON" : "OFF"));
+                    })
+                    .thenApply(v -> settings);
+        });
+    }
+
+    // Manual review defaults to on when unset
+    private Settings withDefaults(Settings settings) {
+        if (settings == null) {
+            return new Settings(true, "");
+        }
+        Settings result = copy(settings);
+        if (result.getManualReview() == null) {
+            result.setManualReview(true);
+        }
+        return result;
+    }
 
-        firebaseService.setValue("settings", settings);
-        activityLogService.addLog("Mode Change", "Manual Review set to " + (newState ? "ON" : "OFF"));
+    // Callers may modify what they get back, so the snapshot is never handed out directly
+    private static Settings copy(Settings settings) {
+        return new Settings(settings.getManualReview(), settings.getLatestNews());
     }
 }
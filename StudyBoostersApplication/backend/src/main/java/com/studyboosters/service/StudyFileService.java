@@ -1,43 +1,296 @@
 package com.studyboosters.service;
 
+import com.studyboosters.dto.response.PageResponse;
 import com.studyboosters.exception.BadRequestException;
+import com.studyboosters.exception.ResourceNotFoundException;
+import com.studyboosters.model.BlobManifest;
+import com.studyboosters.model.FileBlob;
 import com.studyboosters.model.StudyFile;
+import com.studyboosters.store.DataStore;
+import com.studyboosters.store.StoreQuery;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.concurrent.ExecutionException;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class StudyFileService {
 
-    private final FirebaseService firebaseService;
+    static final String FILES_PATH = "files";
+    static final String BLOBS_PATH = "file_blobs";
+
+    // Rows fetched per query when paging with filters the index does not cover
+    private static final int MIN_SCAN_BATCH = 50;
+    private static final int MAX_SCAN_BATCHES = 5;
+
+    private final DataStore dataStore;
     private final ActivityLogService activityLogService;
     private final SettingsService settingsService;
+    private final DownloadCounterService downloadCounterService;
+    private final FileSearchService fileSearchService;
+    private final CollectionVersions collectionVersions;
+    private final ContentBlobService contentBlobService;
+    private final ModerationQueueService moderationQueueService;
+
+    @Value("${storage.files.chunk-size-bytes:786432}")
+    private int chunkSizeBytes;
+
+    /**
+     * Metadata only; file contents live under {@code content_blobs} (legacy uploads: {@code file_blobs})
+     * and are loaded by {@link #getFileContent}.
+     */
+    public CompletableFuture<List<StudyFile>> getAllFiles() {
+        return dataStore.getList(FILES_PATH, StudyFile.class).thenApply(files -> {
+            files.forEach(downloadCounterService::merge);
+            return files;
+        });
+    }
+
+    public CompletableFuture<List<StudyFile>> getApprovedFiles() {
+        return dataStore.query(FILES_PATH, StoreQuery.orderByChild("status").equalTo("Approved"), StudyFile.class)
+                .thenApply(files -> {
+                    files.forEach(downloadCounterService::merge);
+                    return files;
+                });
+    }
+
+    /**
+     * One page of file metadata, filtered and ordered in the store as planned by {@link FileQueryPlan}.
+     * Filters the chosen index does not cover are checked per row, fetching further batches as needed;
+     * after {@link #MAX_SCAN_BATCHES} batches a short page is returned with a cursor to continue from.
+     */
+    public CompletableFuture<PageResponse<StudyFile>> getFiles(String status, String subject, String semester,
+            String fileType, String sort, int limit, String cursor) {
+        FileQueryPlan plan = FileQueryPlan.plan(status, subject, semester, fileType, sort);
+        if (cursor == null) {
+            return scanFiles(plan, null, null, limit, new ArrayList<>(), 0);
+        }
+
+        if (cursor.isBlank()) {
+            throw new BadRequestException("Invalid cursor");
+        }
+        int separator = cursor.indexOf('~');
+        if (separator < 0) {
+            // Key-only cursor: resume among the rows that have no sort value
+            return scanFiles(plan, cursor, null, limit, new ArrayList<>(), 0);
+        }
+        return scanFiles(plan, cursor.substring(0, separator), plan.cursorValue(cursor.substring(separator + 1)),
+                limit, new ArrayList<>(), 0);
+    }
+
+    private CompletableFuture<PageResponse<StudyFile>> scanFiles(FileQueryPlan plan, String cursorKey,
+            Object cursorValue, int limit, List<StudyFile> matches, int batches) {
+        int batch = Math.max(limit + 1, MIN_SCAN_BATCH);
+        // Bounds are inclusive, so fetch one extra to skip the cursor row
+        int fetch = batch + (cursorKey != null ? 1 : 0);
+
+        return dataStore.query(FILES_PATH, plan.query(cursorKey, cursorValue, fetch), StudyFile.class)
+                .thenCompose(rows -> {
+                    rows.removeIf(row -> row.getId().equals(cursorKey));
+                    boolean exhausted = rows.size() < batch;
+                    if (plan.isDescending()) {
+                        Collections.reverse(rows);
+                    }
+
+                    StudyFile last = null;
+                    for (StudyFile row : rows) {
+                        last = row;
+                        if (plan.matches(row)) {
+                            matches.add(row);
+                            if (matches.size() > limit) {
+                                List<StudyFile> page = new ArrayList<>(matches.subList(0, limit));
+                                return CompletableFuture.completedFuture(filePage(plan, page, page.get(limit - 1)));
+                            }
+                        }
+                    }
+
+                    if (exhausted || last == null) {
+                        return CompletableFuture.completedFuture(filePage(plan, matches, null));
+                    }
+                    if (batches + 1 >= MAX_SCAN_BATCHES) {
+                        return CompletableFuture.completedFuture(filePage(plan, matches, last));
+                    }
+                    return scanFiles(plan, last.getId(), plan.sortValue(last), limit, matches, batches + 1);
+                });
+    }
+
+    private PageResponse<StudyFile> filePage(FileQueryPlan plan, List<StudyFile> page, StudyFile resumeAfter) {
+        // Cursors carry stored values, so pending download counts are only merged afterwards
+        String nextCursor = resumeAfter != null ? plan.cursorOf(resumeAfter) : null;
+        page.forEach(downloadCounterService::merge);
+        return new PageResponse<>(page, nextCursor, null, nextCursor != null);
+    }
+
+    public CompletableFuture<StudyFile> getFileById(String id) {
+        return dataStore.getById(FILES_PATH, id, StudyFile.class).thenApply(downloadCounterService::merge);
+    }
+
+    /**
+     * Metadata plus blob payload. Only download paths should need this.
+     */
+    public CompletableFuture<StudyFile> getFileContent(String id) {
+        return getFileById(id).thenCompose(file -> dataStore.getValue(blobPath(file), FileBlob.class)
+                .thenApply(blob -> {
+                    if (blob == null) {
+                        return file;
+                    }
+                    file.setFileBlobData(blob.getFileBlobData());
+                    if (blob.getManifest() != null && blob.getFileChunks() != null && !blob.getFileChunks().isEmpty()) {
+                        // Clients join the chunks into a data URL, so restore the prefix stripped on upload
+                        List<String> chunks = new ArrayList<>(blob.getFileChunks().size());
+                        for (String chunk : blob.getFileChunks()) {
+                            chunks.add(BlobChunks.DEFLATE.equals(blob.getManifest().getEncoding())
+                                    ? Base64.getEncoder().encodeToString(BlobChunks.decodeChunk(chunk, blob.getManifest()))
+                                    : chunk);
+                        }
+                        chunks.set(0, BlobChunks.dataUrlPrefix(blob.getManifest().getContentType()) + chunks.get(0));
+                        file.setFileChunks(chunks);
+                    } else {
+                        file.setFileChunks(blob.getFileChunks());
+                    }
+                    return file;
+                }));
+    }
+
+    /**
+     * Chunk layout of a file's payload. Legacy payloads stored before chunk normalisation are
+     * re-chunked and written back on first access.
+     */
+    public CompletableFuture<BlobManifest> getManifest(StudyFile file) {
+        return dataStore.getValue(blobPath(file) + "/manifest", BlobManifest.class)
+                .thenCompose(manifest -> {
+                    if (manifest != null) {
+                        return CompletableFuture.completedFuture(manifest);
+                    }
+                    if (file.getContentHash() != null) {
+                        throw new ResourceNotFoundException("No content stored for file: " + file.getId());
+                    }
+                    return normalizeStoredBlob(file.getId());
+                });
+    }
+
+    private CompletableFuture<BlobManifest> normalizeStoredBlob(String fileId) {
+        return dataStore.getValue(BLOBS_PATH + "/" + fileId, FileBlob.class).thenCompose(stored -> {
+            if (stored == null) {
+                throw new ResourceNotFoundException("No content stored for file: " + fileId);
+            }
+            FileBlob blob = BlobChunks.normalize(stored.getFileBlobData(), stored.getFileChunks(), chunkSizeBytes);
+            return dataStore.setValue(BLOBS_PATH + "/" + fileId, blob).thenApply(v -> blob.getManifest());
+        });
+    }
+
+    /**
+     * Decoded bytes of a single chunk.
+     */
+    public CompletableFuture<byte[]> readChunk(StudyFile file, BlobManifest manifest, int index) {
+        return dataStore.getValue(blobPath(file) + "/fileChunks/" + index, String.class)
+                .thenApply(chunk -> {
+                    if (chunk == null) {
+                        throw new ResourceNotFoundException("Chunk " + index + " missing for file: " + file.getId());
+                    }
+                    return BlobChunks.decodeChunk(chunk, manifest);
+                });
+    }
+
+    /**
+     * Writes the inclusive byte range {@code [start, end]} to {@code out}, fetching one chunk at a
+     * time so memory stays bounded by the chunk size. Blocks the calling (streaming) thread.
+     */
+    public void streamContent(StudyFile file, BlobManifest manifest, long start, long end, OutputStream out)
+            throws IOException {
+        int chunkSize = manifest.getChunkSize();
+        for (int index = (int) (start / chunkSize); index < manifest.getChunkCount(); index++) {
+            long chunkStart = (long) index * chunkSize;
+            if (chunkStart > end) {
+                break;
+            }
+            byte[] chunk = readChunk(file, manifest, index).join();
+            int from = (int) Math.max(0, start - chunkStart);
+            int to = (int) Math.min(chunk.length, end - chunkStart + 1);
+            out.write(chunk, from, to - from);
+            out.flush();
+        }
+    }
 
-    public List<StudyFile> getAllFiles() throws ExecutionException, InterruptedException {
-        return firebaseService.getList("files", StudyFile.class);
+    private static String blobPath(StudyFile file) {
+        return file.getContentHash() != null
+                ? ContentBlobService.path(file.getContentHash())
+                : BLOBS_PATH + "/" + file.getId();
     }
 
-    public List<StudyFile> getApprovedFiles() throws ExecutionException, InterruptedException {
-        List<StudyFile> files = getAllFiles();
-        return files.stream()
-                .filter(f -> "Approved".equals(f.getStatus()))
-                .collect(Collectors.toList());
+    /**
+     * Stores the payload once per distinct content; a duplicate only adds a reference.
+     */
+    public CompletableFuture<StudyFile> uploadFile(StudyFile file, String uploaderId, String uploaderRollNumber) {
+        // Detach the payload so the metadata record stays lightweight
+        String fileBlobData = file.getFileBlobData();
+        List<String> fileChunks = file.getFileChunks();
+        file.setFileBlobData(null);
+        file.setFileChunks(null);
+
+        Map<String, Object> updates = new HashMap<>();
+        return contentBlobService.store(fileBlobData, fileChunks, updates).thenCompose(hash -> {
+            file.setContentHash(hash);
+            return publishFile(file, dataStore.newKey(FILES_PATH), uploaderId, uploaderRollNumber, updates);
+        });
     }
 
-    public StudyFile getFileById(String id) throws ExecutionException, InterruptedException {
-        return firebaseService.getById("files", id, StudyFile.class);
+    /**
+     * Publishes a file with the same content as one of the uploader's own files, given its
+     * {@code contentHash}, without transferring the bytes again. Knowing a hash proves nothing, so
+     * other users' content is never offered: it fails with 404 whether the content is stored or not,
+     * and the client falls back to a regular upload.
+     */
+    public CompletableFuture<StudyFile> uploadByHash(StudyFile file, String uploaderId, String uploaderRollNumber) {
+        String hash = file.getContentHash();
+        ContentBlobService.checkHash(hash);
+        ResourceNotFoundException notOwned = new ResourceNotFoundException(
+                "None of your files has content with hash: " + hash);
+
+        return dataStore.query(FILES_PATH, StoreQuery.orderByChild("contentHash").equalTo(hash), StudyFile.class)
+                .thenCompose(files -> {
+                    if (files.stream().noneMatch(existing -> uploaderId.equals(existing.getUploaderId()))) {
+                        throw notOwned;
+                    }
+                    return contentBlobService.reference(hash);
+                })
+                .thenCompose(referenced -> {
+                    if (!referenced) {
+                        throw notOwned;
+                    }
+                    file.setFileBlobData(null);
+                    file.setFileChunks(null);
+                    return publishFile(file, dataStore.newKey(FILES_PATH), uploaderId, uploaderRollNumber,
+                            new HashMap<>());
+                });
     }
 
-    public StudyFile uploadFile(StudyFile file, String uploaderId, String uploaderRollNumber)
-            throws ExecutionException, InterruptedException {
+    /**
+     * Creates the metadata record for {@code fileId}, applying {@code updates} in the same atomic write.
+     * The status is decided here, so a file only becomes visible once its content is in place.
+     */
+    CompletableFuture<StudyFile> publishFile(StudyFile file, String fileId, String uploaderId,
+            String uploaderRollNumber, Map<String, Object> updates) {
 
         // Set metadata
         file.setUploadDate(LocalDate.now().format(DateTimeFormatter.ISO_LOCAL_DATE));
@@ -45,49 +298,333 @@ public class StudyFileService {
         file.setUploaderId(uploaderId);
         file.setUploader(uploaderRollNumber);
 
-        // Check if manual review is enabled
-        boolean manualReview = settingsService.isManualReviewEnabled();
-        file.setStatus(manualReview ? "Pending" : "Approved");
+        // Check if manual review is enabled, then write metadata alongside the caller's updates
+        return settingsService.isManualReviewEnabled()
+                .thenCompose(manualReview -> {
+                    file.setStatus(manualReview ? "Pending" : "Approved");
+                    applySortKeys(file);
+                    updates.put(FILES_PATH + "/" + fileId, file);
+                    Map<String, Integer> counts = new HashMap<>();
+                    moderationQueueService.stageAdded(fileId, file, updates, counts);
+                    return dataStore.updateChildren(updates)
+                            .whenComplete((v, e) -> collectionVersions.bump(CollectionVersions.FILES))
+                            .thenCompose(v -> moderationQueueService.applyCounts(counts));
+                })
+                .thenCompose(v -> {
+                    file.setId(fileId);
+                    fileSearchService.index(file);
+                    return activityLogService.addLog("Incoming Upload",
+                            uploaderRollNumber + " submitted \"" + file.getTitle() + "\"", 0);
+                })
+                .thenApply(v -> file);
+    }
+
+    /**
+     * Approves a file. Approving one that is already approved (by a concurrent request, say) changes
+     * nothing and logs nothing.
+     */
+    public CompletableFuture<Void> approveFile(String fileId) {
+        return getFileById(fileId).thenCompose(file -> moveStatus(fileId, "Approved").thenCompose(from -> {
+            if (from == null || from.equals("Approved")) {
+                return CompletableFuture.completedFuture(null);
+            }
+            file.setStatus(from);
+            Map<String, Object> updates = new HashMap<>();
+            Map<String, Integer> counts = new HashMap<>();
+            stageApproval(file, updates, counts);
 
-        // Save to Firebase
-        String fileId = firebaseService.push("files", file);
-        file.setId(fileId);
+            return dataStore.updateChildren(updates)
+                    .whenComplete((v, e) -> collectionVersions.bump(CollectionVersions.FILES))
+                    .thenCompose(v -> moderationQueueService.applyCounts(counts))
+                    .thenCompose(v -> {
+                        fileSearchService.index(file);
+                        return activityLogService.addLog("Resource Approved",
+                                "Admin verified \"" + file.getTitle() + "\"", file.getDownloadCount());
+                    });
+        }));
+    }
 
-        activityLogService.addLog("Incoming Upload", uploaderRollNumber + " submitted \"" + file.getTitle() + "\"", 0);
+    public CompletableFuture<Void> deleteFile(String fileId) {
+        return getFileById(fileId).thenCompose(file -> moveStatus(fileId, null).thenCompose(from -> {
+            if (from == null) {
+                throw new ResourceNotFoundException("Item not found with ID: " + fileId);
+            }
+            file.setStatus(from);
+            Map<String, Object> updates = new HashMap<>();
+            updates.put(FILES_PATH + "/" + fileId, null);
+            if (file.getContentHash() != null) {
+                contentBlobService.dereference(file.getContentHash(), 1, updates);
+            } else {
+                updates.put(BLOBS_PATH + "/" + fileId, null);
+            }
+            Map<String, Integer> counts = new HashMap<>();
+            moderationQueueService.stageRemoved(fileId, file, updates, counts);
+            downloadCounterService.forget(fileId);
 
-        return file;
+            return dataStore.updateChildren(updates)
+                    .whenComplete((v, e) -> collectionVersions.bump(CollectionVersions.FILES))
+                    .thenCompose(v -> moderationQueueService.applyCounts(counts))
+                    .thenCompose(v -> {
+                        fileSearchService.remove(fileId);
+                        if (file.getContentHash() != null) {
+                            releaseContent(file.getContentHash());
+                        }
+                        return activityLogService.addLog("Resource Purged",
+                                "Asset \"" + file.getTitle() + "\" removed permanently", file.getDownloadCount());
+                    });
+        }));
     }
 
-    public void approveFile(String fileId) throws ExecutionException, InterruptedException {
-        StudyFile file = getFileById(fileId);
+    /**
+     * Approves many files in one multi-path write: status, sort keys and a log entry per file.
+     * Returns a result per id: {@code approved}, {@code already_approved} or {@code not_found}.
+     */
+    public CompletableFuture<Map<String, String>> approveFiles(List<String> ids) {
+        return claimFiles(ids, "Approved").thenCompose(files -> {
+            Map<String, String> results = new LinkedHashMap<>();
+            Map<String, Object> updates = new HashMap<>();
+            Map<String, Integer> counts = new HashMap<>();
+            List<StudyFile> approved = new ArrayList<>();
+            for (String id : new LinkedHashSet<>(ids)) {
+                StudyFile file = files.get(id);
+                if (file == null) {
+                    results.put(id, "not_found");
+                    continue;
+                }
+                if ("Approved".equals(file.getStatus())) {
+                    results.put(id, "already_approved");
+                    continue;
+                }
 
-        Map<String, Object> updates = new HashMap<>();
-        updates.put("status", "Approved");
-        firebaseService.update("files", fileId, updates);
+                stageApproval(file, updates, counts);
+                activityLogService.stageLog(updates, "Resource Approved",
+                        "Admin verified \"" + file.getTitle() + "\"", file.getDownloadCount());
+                approved.add(file);
+                results.put(id, "approved");
+            }
+            if (approved.isEmpty()) {
+                return CompletableFuture.completedFuture(results);
+            }
 
-        activityLogService.addLog("Resource Approved", "Admin verified \"" + file.getTitle() + "\"",
-                file.getDownloadCount());
+            return dataStore.updateChildren(updates)
+                    .whenComplete((v, e) -> collectionVersions.bump(CollectionVersions.FILES))
+                    .thenCompose(v -> moderationQueueService.applyCounts(counts))
+                    .thenApply(v -> {
+                        approved.forEach(fileSearchService::index);
+                        return results;
+                    });
+        });
     }
 
-    public void deleteFile(String fileId) throws ExecutionException, InterruptedException {
-        StudyFile file = getFileById(fileId);
-        firebaseService.delete("files", fileId);
+    /**
+     * Deletes many files and drops their content references in one multi-path write, with a log
+     * entry per file. Returns a result per id: {@code deleted} or {@code not_found}.
+     */
+    public CompletableFuture<Map<String, String>> deleteFiles(List<String> ids) {
+        return claimFiles(ids, null).thenCompose(files -> {
+            Map<String, String> results = new LinkedHashMap<>();
+            Map<String, Object> updates = new HashMap<>();
+            // Files in one batch may share content, so references are dropped per hash
+            Map<String, Integer> references = new HashMap<>();
+            Map<String, Integer> counts = new HashMap<>();
+            List<String> deleted = new ArrayList<>();
+            for (String id : new LinkedHashSet<>(ids)) {
+                StudyFile file = files.get(id);
+                if (file == null) {
+                    results.put(id, "not_found");
+                    continue;
+                }
 
-        activityLogService.addLog("Resource Purged", "Asset \"" + file.getTitle() + "\" removed permanently",
-                file.getDownloadCount());
+                updates.put(FILES_PATH + "/" + id, null);
+                if (file.getContentHash() != null) {
+                    references.merge(file.getContentHash(), 1, Integer::sum);
+                } else {
+                    updates.put(BLOBS_PATH + "/" + id, null);
+                }
+                moderationQueueService.stageRemoved(id, file, updates, counts);
+                activityLogService.stageLog(updates, "Resource Purged",
+                        "Asset \"" + file.getTitle() + "\" removed permanently", file.getDownloadCount());
+                deleted.add(id);
+                results.put(id, "deleted");
+            }
+            if (deleted.isEmpty()) {
+                return CompletableFuture.completedFuture(results);
+            }
+            references.forEach((hash, count) -> contentBlobService.dereference(hash, count, updates));
+            deleted.forEach(downloadCounterService::forget);
+
+            return dataStore.updateChildren(updates)
+                    .whenComplete((v, e) -> collectionVersions.bump(CollectionVersions.FILES))
+                    .thenCompose(v -> moderationQueueService.applyCounts(counts))
+                    .thenApply(v -> {
+                        deleted.forEach(fileSearchService::remove);
+                        references.keySet().forEach(this::releaseContent);
+                        return results;
+                    });
+        });
     }
 
-    public void incrementDownloadCount(String fileId, String userRollNumber)
-            throws ExecutionException, InterruptedException {
-        StudyFile file = getFileById(fileId);
+    /**
+     * Moves {@code files/{id}/status} to {@code to} (null removes it) in a transaction and completes
+     * with the status it saw: null if the file is gone, {@code to} if it was already there, otherwise
+     * the status it moved from. Of several requests racing on one file exactly one moves it, so only
+     * that one stages the queue and count changes. The rest of the change is written after the
+     * claim; if that write fails the file keeps its new status with stale sort keys and counts, which
+     * the moderation and sort-key rebuilds repair.
+     */
+    private CompletableFuture<String> moveStatus(String fileId, String to) {
+        AtomicReference<String> seen = new AtomicReference<>();
+        return dataStore.transaction(FILES_PATH + "/" + fileId + "/status", String.class, status -> {
+            seen.set(status);
+            return status == null || status.equals(to) ? status : to;
+        }).thenApply(changed -> seen.get());
+    }
 
-        int newCount = (file.getDownloadCount() != null ? file.getDownloadCount() : 0) + 1;
+    /**
+     * The given files, each moved to {@code to} by {@link #moveStatus} ({@link FanOut#WINDOW} at a
+     * time) and carrying the status it moved from. Files already at {@code to} carry that instead;
+     * files that do not exist, or were deleted meanwhile, are left out.
+     */
+    private CompletableFuture<Map<String, StudyFile>> claimFiles(List<String> ids, String to) {
+        return loadFiles(ids).thenCompose(loaded -> {
+            Map<String, StudyFile> claimed = new ConcurrentHashMap<>();
+            return FanOut.inWindows(new ArrayList<>(loaded.values()), file -> moveStatus(file.getId(), to)
+                    .thenAccept(from -> {
+                        if (from != null) {
+                            file.setStatus(from);
+                            claimed.put(file.getId(), file);
+                        }
+                    })).thenApply(v -> claimed);
+        });
+    }
 
-        Map<String, Object> updates = new HashMap<>();
-        updates.put("downloadCount", newCount);
-        firebaseService.update("files", fileId, updates);
+    // Status, sort keys, queue entry and count changes of one approval
+    private void stageApproval(StudyFile file, Map<String, Object> updates, Map<String, Integer> counts) {
+        String from = file.getStatus();
+        file.setStatus("Approved");
+        applySortKeys(file);
+        String base = FILES_PATH + "/" + file.getId() + "/";
+        updates.put(base + "status", file.getStatus());
+        updates.put(base + "statusUploadDate", file.getStatusUploadDate());
+        updates.put(base + "statusTitle", file.getStatusTitle());
+        updates.put(base + "statusSubjectUploadDate", file.getStatusSubjectUploadDate());
+        moderationQueueService.stageStatusChange(file.getId(), file, from, updates, counts);
+    }
+
+    // Metadata of the given files by id, read FanOut.WINDOW at a time; ids that do not exist are left out
+    private CompletableFuture<Map<String, StudyFile>> loadFiles(List<String> ids) {
+        Map<String, StudyFile> files = new ConcurrentHashMap<>();
+        return FanOut.inWindows(new ArrayList<>(new LinkedHashSet<>(ids)), id -> getFileById(id).handle((file, e) -> {
+            if (e == null) {
+                files.put(id, file);
+                return null;
+            }
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof ResourceNotFoundException) {
+                return null;
+            }
+            throw new CompletionException(cause);
+        })).thenApply(v -> files);
+    }
+
+    // The file records are gone either way; a blob left behind is only wasted space
+    private void releaseContent(String hash) {
+        contentBlobService.releaseIfUnused(hash).exceptionally(e -> {
+            log.warn("Failed to release content {}: {}", hash, e.getMessage());
+            return null;
+        });
+    }
+
+    /**
+     * Writes the composite sort keys onto files created before they existed, so they show up in
+     * filtered listings. Reads the whole collection once, so it is meant to run a single time.
+     */
+    public CompletableFuture<Integer> backfillSortKeys() {
+        return getAllFiles().thenCompose(files -> {
+            Map<String, Object> updates = new HashMap<>();
+            int count = 0;
+            for (StudyFile file : files) {
+                if (file.getStatus() == null) {
+                    continue;
+                }
+                applySortKeys(file);
+                updates.put(FILES_PATH + "/" + file.getId() + "/statusUploadDate", file.getStatusUploadDate());
+                updates.put(FILES_PATH + "/" + file.getId() + "/statusTitle", file.getStatusTitle());
+                updates.put(FILES_PATH + "/" + file.getId() + "/statusSubjectUploadDate",
+                        file.getStatusSubjectUploadDate());
+                updates.put(FILES_PATH + "/" + file.getId() + "/titleKey", file.getTitleKey());
+                count++;
+            }
+            if (updates.isEmpty()) {
+                return CompletableFuture.completedFuture(0);
+            }
+            int indexed = count;
+            return dataStore.updateChildren(updates)
+                    .whenComplete((v, e) -> collectionVersions.bump(CollectionVersions.FILES))
+                    .thenApply(v -> indexed);
+        });
+    }
+
+    /**
+     * Rebuilds the moderation queue and per-status counts from the full collection; meant to run once.
+     */
+    public CompletableFuture<Integer> rebuildModerationIndex() {
+        return getAllFiles().thenCompose(moderationQueueService::rebuild)
+                .whenComplete((v, e) -> collectionVersions.bump(CollectionVersions.FILES));
+    }
+
+    /**
+     * Derives the composite keys used by {@link FileQueryPlan}; must be rewritten with every status change.
+     */
+    static void applySortKeys(StudyFile file) {
+        String status = file.getStatus() + "|";
+        String uploadDate = file.getUploadDate() != null ? file.getUploadDate() : "";
+        file.setStatusUploadDate(status + uploadDate);
+        file.setTitleKey(file.getTitle() != null ? file.getTitle().toLowerCase(Locale.ROOT) : "");
+        file.setStatusTitle(status + file.getTitleKey());
+        file.setStatusSubjectUploadDate(status + (file.getSubject() != null ? file.getSubject() : "") + "|" + uploadDate);
+    }
+
+    /**
+     * Moves payloads still stored inline on legacy {@code files} records into {@code file_blobs}.
+     * Reads the full legacy tree once, so it is meant to run a single time after upgrading.
+     */
+    public CompletableFuture<Integer> migrateInlineBlobs() {
+        return getAllFiles().thenCompose(files -> {
+            Map<String, Object> updates = new HashMap<>();
+            for (StudyFile file : files) {
+                if (file.getFileBlobData() == null && file.getFileChunks() == null) {
+                    continue;
+                }
+                updates.put(BLOBS_PATH + "/" + file.getId(),
+                        BlobChunks.normalize(file.getFileBlobData(), file.getFileChunks(), chunkSizeBytes));
+                updates.put(FILES_PATH + "/" + file.getId() + "/fileBlobData", null);
+                updates.put(FILES_PATH + "/" + file.getId() + "/fileChunks", null);
+            }
+            if (updates.isEmpty()) {
+                return CompletableFuture.completedFuture(0);
+            }
+            return dataStore.updateChildren(updates)
+                    .whenComplete((v, e) -> collectionVersions.bump(CollectionVersions.FILES))
+                    .thenApply(v -> updates.size() / 3);
+        });
+    }
+
+    /**
+     * Counts a download of a file loaded through this service (so its count already includes
+     * pending increments). The increment is buffered by {@link DownloadCounterService} instead
+     * of a read-modify-write of the stored record.
+     */
+    public StudyFile recordDownload(StudyFile file, String userRollNumber) {
+        downloadCounterService.increment(file.getId());
+        int newCount = (file.getDownloadCount() != null ? file.getDownloadCount() : 0) + 1;
+        file.setDownloadCount(newCount);
+        fileSearchService.updateDownloads(file.getId(), newCount);
+        // No version bump: every download would otherwise turn the next poll of every listing into a
+        // full read. Clients answered with 304 keep the counts from their last full read.
 
         activityLogService.addLog("Resource Accessed",
                 "User " + userRollNumber + " downloaded \"" + file.getTitle() + "\"", newCount);
+        return file;
     }
 }
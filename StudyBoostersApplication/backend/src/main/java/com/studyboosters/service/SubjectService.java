@@ -1,37 +1,41 @@
 package com.studyboosters.service;
 
 import com.studyboosters.model.Subject;
+import com.studyboosters.store.DataStore;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 @RequiredArgsConstructor
 public class SubjectService {
 
-    private final FirebaseService firebaseService;
+    private final DataStore dataStore;
     private final ActivityLogService activityLogService;
+    private final CollectionVersions collectionVersions;
 
-    public List<Subject> getAllSubjects() throws ExecutionException, InterruptedException {
-        return firebaseService.getList("subjects", Subject.class);
+    public CompletableFuture<List<Subject>> getAllSubjects() {
+        return dataStore.getList("subjects", Subject.class);
     }
 
-    public Subject addSubject(String name) throws ExecutionException, InterruptedException {
+    public CompletableFuture<Subject> addSubject(String name) {
         Subject subject = new Subject();
         subject.setName(name);
 
-        String subjectId = firebaseService.push("subjects", subject);
-        subject.setId(subjectId);
-
-        activityLogService.addLog("Subject Created", "Admin added \"" + name + "\"");
-
-        return subject;
+        return dataStore.push("subjects", subject)
+                .whenComplete((subjectId, e) -> collectionVersions.bump(CollectionVersions.SUBJECTS))
+                .thenCompose(subjectId -> {
+                    subject.setId(subjectId);
+                    return activityLogService.addLog("Subject Created", "Admin added \"" + name + "\"");
+                })
+                .thenApply(v -> subject);
     }
 
-    public void deleteSubject(String id) throws ExecutionException, InterruptedException {
-        firebaseService.delete("subjects", id);
-        activityLogService.addLog("Subject Deleted", "Admin removed subject");
+    public CompletableFuture<Void> deleteSubject(String id) {
+        return dataStore.delete("subjects", id)
+                .whenComplete((v, e) -> collectionVersions.bump(CollectionVersions.SUBJECTS))
+                .thenCompose(v -> activityLogService.addLog("Subject Deleted", "Admin removed subject"));
     }
 }
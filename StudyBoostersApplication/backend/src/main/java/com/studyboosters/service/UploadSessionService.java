@@ -0,0 +1,279 @@
+package com.studyboosters.service;
+
+import com.studyboosters.dto.request.UploadInitRequest;
+import com.studyboosters.exception.BadRequestException;
+import com.studyboosters.exception.ConflictException;
+import com.studyboosters.exception.UnauthorizedException;
+import com.studyboosters.model.BlobManifest;
+import com.studyboosters.model.StudyFile;
+import com.studyboosters.model.UploadSession;
+import com.studyboosters.store.DataStore;
+import com.studyboosters.store.StoreQuery;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resumable chunked uploads: init reserves a file id, each chunk is staged under
+ * {@code file_blobs/{fileId}/fileChunks/{index}} as it arrives, and commit moves the content into
+ * {@link ContentBlobService} (or references an identical stored copy) and publishes the metadata.
+ * Received chunks are tracked in the store, so a client can query the session and resume.
+ * Sessions idle for {@code storage.uploads.session-ttl-ms} are swept together with their staged chunks.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UploadSessionService {
+
+    static final String SESSIONS_PATH = "upload_sessions";
+    static final String COMMITTING = "committing";
+
+    private static final int SWEEP_BATCH = 100;
+
+    private final DataStore dataStore;
+    private final StudyFileService studyFileService;
+    private final ContentBlobService contentBlobService;
+
+    // Session descriptors never change after init, so chunk writes can skip the read
+    private final Map<String, UploadSession> sessions = new ConcurrentHashMap<>();
+
+    @Value("${storage.files.chunk-size-bytes:786432}")
+    private int chunkSizeBytes;
+
+    @Value("${storage.uploads.max-total-bytes:104857600}")
+    private long maxTotalBytes;
+
+    @Value("${storage.uploads.session-ttl-ms:86400000}")
+    private long sessionTtlMs;
+
+    public CompletableFuture<UploadSession> initSession(UploadInitRequest request, String uploaderId,
+            String uploaderRollNumber) {
+        if (request.getTotalSize() == null || request.getTotalSize() <= 0) {
+            throw new BadRequestException("totalSize must be positive");
+        }
+        if (request.getTotalSize() > maxTotalBytes) {
+            throw new BadRequestException("totalSize must be at most " + maxTotalBytes + " bytes");
+        }
+
+        int chunkSize = BlobChunks.alignedChunkSize(chunkSizeBytes);
+        int chunkCount = (int) ((request.getTotalSize() + chunkSize - 1) / chunkSize);
+
+        UploadSession session = new UploadSession();
+        session.setFileId(dataStore.newKey(StudyFileService.FILES_PATH));
+        session.setUploaderId(uploaderId);
+        session.setUploader(uploaderRollNumber);
+        session.setTitle(request.getTitle());
+        session.setSubject(request.getSubject());
+        session.setSemester(request.getSemester());
+        session.setFileType(request.getFileType());
+        session.setFileSize(request.getFileSize());
+        session.setDescription(request.getDescription());
+        session.setContentType(request.getContentType() != null
+                ? request.getContentType() : BlobChunks.DEFAULT_CONTENT_TYPE);
+        session.setTotalSize(request.getTotalSize());
+        session.setChunkSize(chunkSize);
+        session.setChunkCount(chunkCount);
+        session.setReceived(new HashMap<>());
+        session.setCreatedAt(LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+        session.setExpiresAt(System.currentTimeMillis() + sessionTtlMs);
+
+        String sessionId = dataStore.newKey(SESSIONS_PATH);
+        return dataStore.setValue(SESSIONS_PATH + "/" + sessionId, session).thenApply(v -> {
+            session.setId(sessionId);
+            sessions.put(sessionId, session);
+            return session;
+        });
+    }
+
+    /**
+     * Current session state including received chunks; always read from the store so it is
+     * accurate after a disconnect or on another instance.
+     */
+    public CompletableFuture<UploadSession> getSession(String sessionId, String uploaderId) {
+        return dataStore.getById(SESSIONS_PATH, sessionId, UploadSession.class)
+                .thenApply(session -> checkOwner(session, uploaderId));
+    }
+
+    public CompletableFuture<Void> putChunk(String sessionId, int index, byte[] data, String uploaderId) {
+        UploadSession cached = sessions.get(sessionId);
+        CompletableFuture<UploadSession> session = cached != null
+                ? CompletableFuture.completedFuture(checkOwner(cached, uploaderId))
+                : getSession(sessionId, uploaderId).thenApply(s -> {
+                    sessions.put(sessionId, s);
+                    return s;
+                });
+
+        return session.thenCompose(s -> {
+            if (index < 0 || index >= s.getChunkCount()) {
+                throw new BadRequestException("Chunk index out of range: " + index);
+            }
+            long expected = index < s.getChunkCount() - 1
+                    ? s.getChunkSize()
+                    : s.getTotalSize() - (long) s.getChunkSize() * (s.getChunkCount() - 1);
+            if (data.length != expected) {
+                throw new BadRequestException("Chunk " + index + " must be " + expected + " bytes");
+            }
+
+            Map<String, Object> updates = new HashMap<>();
+            updates.put(StudyFileService.BLOBS_PATH + "/" + s.getFileId() + "/fileChunks/" + index,
+                    Base64.getEncoder().encodeToString(data));
+            updates.put(SESSIONS_PATH + "/" + sessionId + "/received/c" + index, true);
+            long expiresAt = System.currentTimeMillis() + sessionTtlMs;
+            updates.put(SESSIONS_PATH + "/" + sessionId + "/expiresAt", expiresAt);
+            // If another instance swept the session meanwhile, what this recreates can still be swept
+            updates.put(SESSIONS_PATH + "/" + sessionId + "/fileId", s.getFileId());
+            s.setExpiresAt(expiresAt);
+            return dataStore.updateChildren(updates);
+        });
+    }
+
+    /**
+     * Publishes the session's file. The session is first claimed in a transaction, so of two
+     * concurrent commits only one publishes; the other gets a conflict. A failed commit releases
+     * the claim so the client can retry.
+     */
+    public CompletableFuture<StudyFile> commit(String sessionId, String uploaderId) {
+        return getSession(sessionId, uploaderId).thenCompose(session -> {
+            List<Integer> missing = new ArrayList<>();
+            Map<String, Boolean> received = session.getReceived() != null ? session.getReceived() : Map.of();
+            for (int i = 0; i < session.getChunkCount(); i++) {
+                if (!Boolean.TRUE.equals(received.get("c" + i))) {
+                    missing.add(i);
+                }
+            }
+            if (!missing.isEmpty()) {
+                throw new BadRequestException("Missing chunks: " + missing);
+            }
+
+            return claim(sessionId).thenCompose(claimed -> {
+                if (!claimed) {
+                    throw new ConflictException("Upload session is already being committed");
+                }
+                return publish(sessionId, session).exceptionallyCompose(e -> release(sessionId)
+                        .handle((v, releaseError) -> {
+                            throw e instanceof CompletionException ? (CompletionException) e : new CompletionException(e);
+                        }));
+            });
+        }).whenComplete((file, e) -> {
+            if (e == null) {
+                sessions.remove(sessionId);
+            }
+        });
+    }
+
+    public CompletableFuture<Void> abort(String sessionId, String uploaderId) {
+        return getSession(sessionId, uploaderId).thenCompose(session -> {
+            if (COMMITTING.equals(session.getState())) {
+                throw new ConflictException("Upload session is being committed");
+            }
+            Map<String, Object> updates = new HashMap<>();
+            updates.put(StudyFileService.BLOBS_PATH + "/" + session.getFileId(), null);
+            updates.put(SESSIONS_PATH + "/" + sessionId, null);
+            return dataStore.updateChildren(updates);
+        }).whenComplete((v, e) -> sessions.remove(sessionId));
+    }
+
+    @Scheduled(fixedDelayString = "${storage.uploads.sweep-interval-ms:600000}")
+    public void scheduledSweep() {
+        sweepExpired().whenComplete((swept, e) -> {
+            if (e != null) {
+                log.warn("Upload session sweep failed: {}", e.getMessage());
+            } else if (swept > 0) {
+                log.info("Removed {} expired upload sessions", swept);
+            }
+        });
+    }
+
+    /**
+     * Deletes up to {@value #SWEEP_BATCH} expired sessions and their staged chunks. Sessions written
+     * before expiry existed have no {@code expiresAt}, sort first and are swept as well.
+     */
+    public CompletableFuture<Integer> sweepExpired() {
+        long now = System.currentTimeMillis();
+        sessions.values().removeIf(session -> session.getExpiresAt() == null || session.getExpiresAt() <= now);
+
+        StoreQuery query = StoreQuery.orderByChild("expiresAt").endAt(now).limitToFirst(SWEEP_BATCH);
+        return dataStore.query(SESSIONS_PATH, query, UploadSession.class).thenCompose(expired -> {
+            if (expired.isEmpty()) {
+                return CompletableFuture.completedFuture(0);
+            }
+            Map<String, Object> updates = new HashMap<>();
+            for (UploadSession session : expired) {
+                updates.put(SESSIONS_PATH + "/" + session.getId(), null);
+                if (session.getFileId() != null) {
+                    updates.put(StudyFileService.BLOBS_PATH + "/" + session.getFileId(), null);
+                }
+                sessions.remove(session.getId());
+            }
+            return dataStore.updateChildren(updates).thenApply(v -> expired.size());
+        });
+    }
+
+    private CompletableFuture<StudyFile> publish(String sessionId, UploadSession session) {
+        StudyFile file = new StudyFile();
+        file.setTitle(session.getTitle());
+        file.setSubject(session.getSubject());
+        file.setSemester(session.getSemester());
+        file.setFileType(session.getFileType());
+        file.setFileSize(session.getFileSize());
+        file.setDescription(session.getDescription());
+
+        BlobManifest staged = new BlobManifest(session.getContentType(), session.getChunkCount(),
+                session.getChunkSize(), session.getTotalSize(), null);
+
+        Map<String, Object> updates = new HashMap<>();
+        updates.put(SESSIONS_PATH + "/" + sessionId, null);
+
+        return contentBlobService.adopt(StudyFileService.BLOBS_PATH + "/" + session.getFileId(), staged, updates)
+                .thenCompose(hash -> {
+                    file.setContentHash(hash);
+                    return studyFileService.publishFile(file, session.getFileId(), session.getUploaderId(),
+                            session.getUploader(), updates);
+                });
+    }
+
+    // Moves an open session to committing; false when it is gone or already claimed. The whole record
+    // is transacted, as a plain map, so a session deleted by the winning commit is not recreated.
+    private CompletableFuture<Boolean> claim(String sessionId) {
+        return dataStore.transaction(SESSIONS_PATH + "/" + sessionId, Object.class, current -> {
+            if (!(current instanceof Map) || ((Map<?, ?>) current).get("state") != null) {
+                return current;
+            }
+            Map<Object, Object> next = new HashMap<>((Map<?, ?>) current);
+            next.put("state", COMMITTING);
+            return next;
+        });
+    }
+
+    private CompletableFuture<Boolean> release(String sessionId) {
+        return dataStore.transaction(SESSIONS_PATH + "/" + sessionId, Object.class, current -> {
+            if (!(current instanceof Map) || !COMMITTING.equals(((Map<?, ?>) current).get("state"))) {
+                return current;
+            }
+            Map<Object, Object> next = new HashMap<>((Map<?, ?>) current);
+            next.remove("state");
+            return next;
+        });
+    }
+
+    private UploadSession checkOwner(UploadSession session, String uploaderId) {
+        if (!Objects.equals(session.getUploaderId(), uploaderId)) {
+            throw new UnauthorizedException("Upload session belongs to another user");
+        }
+        return session;
+    }
+}
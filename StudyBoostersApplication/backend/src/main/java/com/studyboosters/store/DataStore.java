@@ -0,0 +1,92 @@
+package com.studyboosters.store;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Persistence SPI used by the services. Paths are slash-separated and relative to the
+ * application root; the tree model and query semantics follow the Firebase Realtime Database.
+ * Select the implementation with {@code storage.backend} ({@code firebase} or {@code local}).
+ */
+public interface DataStore {
+
+    /**
+     * All children of a path, in key order, with ids set from their keys
+     */
+    <T> CompletableFuture<List<T>> getList(String path, Class<T> clazz);
+
+    /**
+     * Children matching an ordered query, in query order (ascending)
+     */
+    <T> CompletableFuture<List<T>> query(String path, StoreQuery query, Class<T> clazz);
+
+    /**
+     * A single child; fails with ResourceNotFoundException if it does not exist
+     */
+    <T> CompletableFuture<T> getById(String path, String id, Class<T> clazz);
+
+    /**
+     * The value at a path, or null if nothing is stored there
+     */
+    <T> CompletableFuture<T> getValue(String path, Class<T> clazz);
+
+    /**
+     * Store under a newly generated chronological key and return the key
+     */
+    <T> CompletableFuture<String> push(String path, T data);
+
+    /**
+     * Replace the value at a path
+     */
+    <T> CompletableFuture<Void> setValue(String path, T data);
+
+    /**
+     * Update fields of {@code path/id}; keys may be nested relative paths
+     */
+    CompletableFuture<Void> update(String path, String id, Map<String, Object> updates);
+
+    /**
+     * Generate a chronological key under a path without writing anything
+     */
+    String newKey(String path);
+
+    /**
+     * Atomically apply a multi-path update relative to the root (null values delete)
+     */
+    CompletableFuture<Void> updateChildren(Map<String, Object> updates);
+
+    /**
+     * A value for {@link #updateChildren} that adds {@code delta} to the stored number. A negative
+     * delta leaves an absent value absent, so decrementing something already deleted is a no-op.
+     * On Firebase the deltas are applied by transactions once the rest of the update is written,
+     * so they are not atomic with it.
+     */
+    Object increment(long delta);
+
+    /**
+     * Atomically replaces the value at a path with {@code update} applied to the current value
+     * (null when absent), retrying on contention; a null result deletes. {@code update} may be called
+     * several times and must not have side effects beyond its last call. Completes with true if the
+     * value was changed, false if {@code update} returned a value equal to the current one.
+     */
+    <T> CompletableFuture<Boolean> transaction(String path, Class<T> clazz, UnaryOperator<T> update);
+
+    /**
+     * Calls {@code listener} with the value at {@code path} (null when absent) now and after every
+     * change, including changes made by other writers. Returns a handle that stops watching.
+     */
+    <T> Runnable watchValue(String path, Class<T> clazz, Consumer<T> listener);
+
+    /**
+     * Delete {@code path/id}
+     */
+    CompletableFuture<Void> delete(String path, String id);
+
+    /**
+     * Remove everything under the application root (admin only!)
+     */
+    CompletableFuture<Void> clearDatabase();
+}
@@ -0,0 +1,736 @@
+package com.studyboosters.store;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.studyboosters.exception.ResourceNotFoundException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Embedded, file-backed {@link DataStore} for small deployments and offline runs.
+ * The whole tree lives in memory as sorted maps; every write is appended to a JSON-lines log
+ * before it is applied, and the log is folded into a snapshot on start-up and every
+ * {@code storage.local.compact-after} writes. Ordering and query semantics mirror Firebase.
+ * Compaction copies the tree and rotates the log under the write lock, then writes the snapshot
+ * in the background; rotated segments are replayed on start-up until a snapshot covers them.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "storage.backend", havingValue = "local")
+public class LocalDataStore implements DataStore {
+
+    private static final String SNAPSHOT_FILE = "snapshot.json";
+    private static final String LOG_FILE = "wal.log";
+    private static final String SEGMENT_PREFIX = "wal-";
+
+    // Firebase key order: integer-like keys numerically first, then strings lexicographically
+    private static final Comparator<String> KEY_ORDER = (a, b) -> {
+        Long indexA = asIndex(a);
+        Long indexB = asIndex(b);
+        if (indexA != null && indexB != null) {
+            return Long.compare(indexA, indexB);
+        }
+        if (indexA != null) {
+            return -1;
+        }
+        if (indexB != null) {
+            return 1;
+        }
+        return a.compareTo(b);
+    };
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final PushIds pushIds = new PushIds();
+
+    private final Path directory;
+    private final boolean fsync;
+    private final int compactAfter;
+
+    // Value listeners; notified under the write lock so each sees changes in order
+    private final List<Watch<?>> watches = new CopyOnWriteArrayList<>();
+
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "local-store-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean compacting = new AtomicBoolean();
+
+    private NavigableMap<String, Object> root = newNode();
+    private FileChannel wal;
+    private int loggedWrites;
+    private long lastSegment; // number of the newest rotated log segment
+
+    public LocalDataStore(@Value("${storage.local.dir:./data}") String directory,
+            @Value("${storage.local.fsync:false}") boolean fsync,
+            @Value("${storage.local.compact-after:10000}") int compactAfter) {
+        this.directory = Paths.get(directory);
+        this.fsync = fsync;
+        this.compactAfter = compactAfter;
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        Files.createDirectories(directory);
+        Path snapshot = directory.resolve(SNAPSHOT_FILE);
+        if (Files.exists(snapshot)) {
+            Object stored = normalize(objectMapper.readValue(snapshot.toFile(), Map.class));
+            root = stored != null ? asNode(stored) : newNode();
+        }
+        List<Path> segments = segments();
+        for (Path segment : segments) {
+            replayLog(segment);
+        }
+        replayLog(directory.resolve(LOG_FILE));
+
+        // Start every run from a fresh snapshot and an empty log
+        writeSnapshot(root);
+        for (Path segment : segments) {
+            Files.delete(segment);
+        }
+        wal = FileChannel.open(directory.resolve(LOG_FILE), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        loggedWrites = 0;
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        lock.writeLock().lock();
+        try {
+            if (wal != null) {
+                wal.close();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public <T> CompletableFuture<List<T>> getList(String path, Class<T> clazz) {
+        Map<String, Object> children = readChildren(path);
+        List<T> items = new ArrayList<>(children.size());
+        children.forEach((key, value) -> items.add(toModel(key, value, clazz)));
+        return CompletableFuture.completedFuture(items);
+    }
+
+    @Override
+    public <T> CompletableFuture<List<T>> query(String path, StoreQuery query, Class<T> clazz) {
+        String orderBy = query.getOrderByChild();
+        List<Map.Entry<String, Object>> entries = new ArrayList<>(readChildren(path).entrySet());
+        if (orderBy != null) {
+            entries.sort((a, b) -> {
+                int result = compareValues(childValue(a.getValue(), orderBy), childValue(b.getValue(), orderBy));
+                return result != 0 ? result : KEY_ORDER.compare(a.getKey(), b.getKey());
+            });
+        }
+
+        List<Map.Entry<String, Object>> matches = new ArrayList<>();
+        for (Map.Entry<String, Object> entry : entries) {
+            Object value = orderBy != null ? childValue(entry.getValue(), orderBy) : entry.getKey();
+            String key = entry.getKey();
+            if (query.getEqualTo() != null && compareBound(orderBy, value, key, query.getEqualTo(), null) != 0) {
+                continue;
+            }
+            if ((query.getStartAt() != null || query.getStartAtKey() != null)
+                    && compareBound(orderBy, value, key, query.getStartAt(), query.getStartAtKey()) < 0) {
+                continue;
+            }
+            if ((query.getEndAt() != null || query.getEndAtKey() != null)
+                    && compareBound(orderBy, value, key, query.getEndAt(), query.getEndAtKey()) > 0) {
+                continue;
+            }
+            matches.add(entry);
+        }
+
+        if (query.getLimitToFirst() != null && matches.size() > query.getLimitToFirst()) {
+            matches = matches.subList(0, query.getLimitToFirst());
+        }
+        if (query.getLimitToLast() != null && matches.size() > query.getLimitToLast()) {
+            matches = matches.subList(matches.size() - query.getLimitToLast(), matches.size());
+        }
+
+        List<T> items = new ArrayList<>(matches.size());
+        for (Map.Entry<String, Object> entry : matches) {
+            items.add(toModel(entry.getKey(), entry.getValue(), clazz));
+        }
+        return CompletableFuture.completedFuture(items);
+    }
+
+    @Override
+    public <T> CompletableFuture<T> getById(String path, String id, Class<T> clazz) {
+        Object value = read(path + "/" + id);
+        if (value == null) {
+            return CompletableFuture.failedFuture(new ResourceNotFoundException("Item not found with ID: " + id));
+        }
+        return CompletableFuture.completedFuture(toModel(id, value, clazz));
+    }
+
+    @Override
+    public <T> CompletableFuture<T> getValue(String path, Class<T> clazz) {
+        Object value = read(path);
+        return CompletableFuture.completedFuture(value != null ? objectMapper.convertValue(value, clazz) : null);
+    }
+
+    @Override
+    public <T> CompletableFuture<String> push(String path, T data) {
+        String key = newKey(path);
+        return write(Collections.singletonMap(path + "/" + key, data)).thenApply(v -> key);
+    }
+
+    @Override
+    public <T> CompletableFuture<Void> setValue(String path, T data) {
+        return write(Collections.singletonMap(path, data));
+    }
+
+    @Override
+    public CompletableFuture<Void> update(String path, String id, Map<String, Object> updates) {
+        Map<String, Object> absolute = new LinkedHashMap<>();
+        updates.forEach((key, value) -> absolute.put(path + "/" + id + "/" + key, value));
+        return write(absolute);
+    }
+
+    @Override
+    public String newKey(String path) {
+        return pushIds.next();
+    }
+
+    @Override
+    public CompletableFuture<Void> updateChildren(Map<String, Object> updates) {
+        return write(updates);
+    }
+
+    @Override
+    public Object increment(long delta) {
+        return new Increment(delta);
+    }
+
+    @Override
+    public <T> CompletableFuture<Boolean> transaction(String path, Class<T> clazz, UnaryOperator<T> update) {
+        lock.writeLock().lock();
+        try {
+            Object stored = toPlain(get(root, segments(path)));
+            T current = stored != null ? objectMapper.convertValue(stored, clazz) : null;
+            T next = update.apply(current);
+            if (Objects.equals(current, next)) {
+                return CompletableFuture.completedFuture(false);
+            }
+            return write(Collections.singletonMap(path, next)).thenApply(v -> true);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public <T> Runnable watchValue(String path, Class<T> clazz, Consumer<T> listener) {
+        Watch<T> watch = new Watch<>(segments(path), clazz, listener);
+        lock.writeLock().lock();
+        try {
+            watches.add(watch);
+            watch.deliver();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return () -> watches.remove(watch);
+    }
+
+    @Override
+    public CompletableFuture<Void> delete(String path, String id) {
+        return write(Collections.singletonMap(path + "/" + id, null));
+    }
+
+    @Override
+    public CompletableFuture<Void> clearDatabase() {
+        return write(Collections.singletonMap("", null));
+    }
+
+    /**
+     * Resolves, logs and applies a multi-path write under the write lock.
+     */
+    private CompletableFuture<Void> write(Map<String, Object> updates) {
+        lock.writeLock().lock();
+        try {
+            Map<String, Object> resolved = new LinkedHashMap<>();
+            updates.forEach((path, value) -> {
+                if (value instanceof Increment) {
+                    resolved.put(path, ((Increment) value).applyTo(get(root, segments(path))));
+                } else {
+                    resolved.put(path, normalize(value));
+                }
+            });
+
+            appendToLog(resolved);
+            resolved.forEach(this::apply);
+            notifyWatches(resolved.keySet());
+
+            if (++loggedWrites >= compactAfter && compacting.compareAndSet(false, true)) {
+                startCompaction();
+            }
+            return CompletableFuture.completedFuture(null);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(new UncheckedIOException("Local store write failed", e));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void notifyWatches(Set<String> writtenPaths) {
+        for (Watch<?> watch : watches) {
+            for (String path : writtenPaths) {
+                if (overlaps(segments(path), watch.segments)) {
+                    watch.deliver();
+                    break;
+                }
+            }
+        }
+    }
+
+    // One path contains the other, so a write to either can change the watched value
+    private static boolean overlaps(String[] a, String[] b) {
+        for (int i = 0; i < Math.min(a.length, b.length); i++) {
+            if (!a[i].equals(b[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void appendToLog(Map<String, Object> resolved) throws IOException {
+        byte[] line = objectMapper.writeValueAsBytes(resolved);
+        ByteBuffer buffer = ByteBuffer.allocate(line.length + 1).put(line).put((byte) '\n');
+        buffer.flip();
+        long start = wal.position();
+        try {
+            while (buffer.hasRemaining()) {
+                wal.write(buffer);
+            }
+            if (fsync) {
+                wal.force(false);
+            }
+        } catch (IOException e) {
+            // Cut off the partial record so later appends follow a complete one; if even that
+            // fails, replay skips the torn record
+            try {
+                wal.truncate(start);
+            } catch (IOException truncateFailure) {
+                e.addSuppressed(truncateFailure);
+            }
+            throw e;
+        }
+    }
+
+    private void replayLog(Path logFile) throws IOException {
+        if (!Files.exists(logFile)) {
+            return;
+        }
+        int skipped = 0;
+        try (BufferedReader reader = Files.newBufferedReader(logFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                Map<?, ?> entry;
+                try {
+                    entry = objectMapper.readValue(line, Map.class);
+                } catch (IOException e) {
+                    // A record torn by a crash or a failed append was never applied, so it is skipped
+                    skipped++;
+                    continue;
+                }
+                entry.forEach((path, value) -> apply((String) path, normalize(value)));
+            }
+        }
+        if (skipped > 0) {
+            log.warn("Skipped {} unreadable entries in {}", skipped, logFile);
+        }
+    }
+
+    /**
+     * Copies the tree and rotates the log under the write lock, then writes the snapshot and drops
+     * the rotated segments in the background, so writers only wait for the in-memory copy.
+     */
+    private void startCompaction() {
+        NavigableMap<String, Object> copy = deepCopy(root);
+        long segment;
+        try {
+            segment = rotateLog();
+        } catch (IOException e) {
+            // The write itself succeeded; compaction is retried on the next one
+            compacting.set(false);
+            log.warn("Local store log rotation failed: {}", e.getMessage());
+            return;
+        }
+
+        compactor.execute(() -> {
+            try {
+                writeSnapshot(copy);
+                for (Path rotated : segments()) {
+                    if (segmentNumber(rotated) <= segment) {
+                        Files.delete(rotated);
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                log.warn("Local store compaction failed, log segments kept for replay: {}", e.getMessage());
+            } finally {
+                compacting.set(false);
+            }
+        });
+    }
+
+    // Renames the current log to the next segment and starts an empty one; returns the segment number
+    private long rotateLog() throws IOException {
+        Path current = directory.resolve(LOG_FILE);
+        wal.close();
+        long segment = ++lastSegment;
+        try {
+            Files.move(current, directory.resolve(SEGMENT_PREFIX + segment + ".log"), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // Keep appending to the current log
+            wal = FileChannel.open(current, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            wal.position(wal.size());
+            throw e;
+        }
+        wal = FileChannel.open(directory.resolve(LOG_FILE), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        loggedWrites = 0;
+        return segment;
+    }
+
+    private void writeSnapshot(NavigableMap<String, Object> tree) throws IOException {
+        Path snapshot = directory.resolve(SNAPSHOT_FILE);
+        Path temp = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        objectMapper.writeValue(temp.toFile(), tree);
+        Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Rotated segments, oldest first; also moves lastSegment past them
+    private List<Path> segments() throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*.log")) {
+            for (Path file : files) {
+                if (segmentNumber(file) >= 0) {
+                    segments.add(file);
+                }
+            }
+        }
+        segments.sort(Comparator.comparingLong(LocalDataStore::segmentNumber));
+        if (!segments.isEmpty()) {
+            lastSegment = Math.max(lastSegment, segmentNumber(segments.get(segments.size() - 1)));
+        }
+        return segments;
+    }
+
+    private static long segmentNumber(Path segment) {
+        String name = segment.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - ".log".length()));
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            return -1;
+        }
+    }
+
+    private static NavigableMap<String, Object> deepCopy(NavigableMap<String, Object> node) {
+        NavigableMap<String, Object> copy = newNode();
+        node.forEach((key, value) -> copy.put(key, value instanceof NavigableMap ? deepCopy(asNode(value)) : value));
+        return copy;
+    }
+
+    private void apply(String path, Object value) {
+        String[] segments = segments(path);
+        if (segments.length == 0) {
+            root = value instanceof NavigableMap ? asNode(value) : newNode();
+            return;
+        }
+        set(root, segments, 0, value);
+    }
+
+    private void set(NavigableMap<String, Object> node, String[] segments, int index, Object value) {
+        String key = segments[index];
+        if (index == segments.length - 1) {
+            if (value == null) {
+                node.remove(key);
+            } else {
+                node.put(key, value);
+            }
+            return;
+        }
+
+        Object child = node.get(key);
+        if (!(child instanceof NavigableMap)) {
+            if (value == null) {
+                return;
+            }
+            child = newNode();
+            node.put(key, child);
+        }
+        NavigableMap<String, Object> childNode = asNode(child);
+        set(childNode, segments, index + 1, value);
+        // Like Firebase, a node without children does not exist
+        if (childNode.isEmpty()) {
+            node.remove(key);
+        }
+    }
+
+    private Object read(String path) {
+        lock.readLock().lock();
+        try {
+            return toPlain(get(root, segments(path)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Map<String, Object> readChildren(String path) {
+        lock.readLock().lock();
+        try {
+            Object node = get(root, segments(path));
+            Map<String, Object> children = new LinkedHashMap<>();
+            if (node instanceof NavigableMap) {
+                asNode(node).forEach((key, value) -> children.put(key, toPlain(value)));
+            }
+            return children;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static Object get(Object node, String[] segments) {
+        for (String segment : segments) {
+            if (!(node instanceof NavigableMap)) {
+                return null;
+            }
+            node = ((NavigableMap<?, ?>) node).get(segment);
+        }
+        return node;
+    }
+
+    // Child of a plain record, as readChildren returns them (not of a tree node)
+    private static Object childValue(Object node, String childPath) {
+        Object value = node;
+        for (String segment : segments(childPath)) {
+            if (value instanceof Map) {
+                value = ((Map<?, ?>) value).get(segment);
+            } else if (value instanceof List && asIndex(segment) != null
+                    && asIndex(segment) < ((List<?>) value).size()) {
+                value = ((List<?>) value).get(asIndex(segment).intValue());
+            } else {
+                return null;
+            }
+        }
+        // Objects all sort together after primitives
+        return value instanceof Map || value instanceof List ? Collections.emptyMap() : value;
+    }
+
+    private <T> T toModel(String key, Object value, Class<T> clazz) {
+        ModelMapping.ModelReader<T> reader = ModelMapping.reader(clazz);
+        if (reader != null) {
+            return reader.read(key, ModelMapping.record(value));
+        }
+        return ModelMapping.withId(objectMapper.convertValue(value, clazz), key);
+    }
+
+    /**
+     * Converts incoming values into the stored form: sorted maps, lists as index-keyed maps,
+     * and no null or empty children.
+     */
+    private Object normalize(Object value) {
+        if (value == null || value instanceof String || value instanceof Number || value instanceof Boolean) {
+            return value;
+        }
+        if (value instanceof Map) {
+            NavigableMap<String, Object> node = newNode();
+            ((Map<?, ?>) value).forEach((key, child) -> {
+                Object normalized = normalize(child);
+                if (normalized != null) {
+                    node.put(String.valueOf(key), normalized);
+                }
+            });
+            return node.isEmpty() ? null : node;
+        }
+        if (value instanceof List) {
+            NavigableMap<String, Object> node = newNode();
+            List<?> list = (List<?>) value;
+            for (int i = 0; i < list.size(); i++) {
+                Object normalized = normalize(list.get(i));
+                if (normalized != null) {
+                    node.put(String.valueOf(i), normalized);
+                }
+            }
+            return node.isEmpty() ? null : node;
+        }
+        return normalize(objectMapper.convertValue(value, Object.class));
+    }
+
+    /**
+     * Deep copy into plain collections; index-keyed maps become lists as Firebase returns them.
+     */
+    private static Object toPlain(Object value) {
+        if (!(value instanceof NavigableMap)) {
+            return value;
+        }
+        NavigableMap<String, Object> node = asNode(value);
+        long maxIndex = -1;
+        boolean allIndexes = true;
+        for (String key : node.keySet()) {
+            Long index = asIndex(key);
+            if (index == null) {
+                allIndexes = false;
+                break;
+            }
+            maxIndex = Math.max(maxIndex, index);
+        }
+        if (allIndexes && maxIndex < 2L * node.size()) {
+            List<Object> list = new ArrayList<>(Collections.nCopies((int) maxIndex + 1, null));
+            node.forEach((key, child) -> list.set(asIndex(key).intValue(), toPlain(child)));
+            return list;
+        }
+        Map<String, Object> plain = new LinkedHashMap<>();
+        node.forEach((key, child) -> plain.put(key, toPlain(child)));
+        return plain;
+    }
+
+    private static int compareBound(String orderBy, Object value, String key, Object bound, String boundKey) {
+        int result = orderBy == null
+                ? KEY_ORDER.compare(key, String.valueOf(bound))
+                : compareValues(value, bound);
+        if (result != 0 || boundKey == null) {
+            return result;
+        }
+        return KEY_ORDER.compare(key, boundKey);
+    }
+
+    // Firebase value order: null, false, true, numbers, strings, objects
+    private static int compareValues(Object a, Object b) {
+        int rankA = rank(a);
+        int rankB = rank(b);
+        if (rankA != rankB) {
+            return Integer.compare(rankA, rankB);
+        }
+        switch (rankA) {
+            case 1:
+                return Boolean.compare((Boolean) a, (Boolean) b);
+            case 2:
+                return Double.compare(((Number) a).doubleValue(), ((Number) b).doubleValue());
+            case 3:
+                return ((String) a).compareTo((String) b);
+            default:
+                return 0;
+        }
+    }
+
+    private static int rank(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof Boolean) {
+            return 1;
+        }
+        if (value instanceof Number) {
+            return 2;
+        }
+        if (value instanceof String) {
+            return 3;
+        }
+        return 4;
+    }
+
+    private static Long asIndex(String key) {
+        if (key.isEmpty() || key.length() > 10 || (key.length() > 1 && key.charAt(0) == '0')) {
+            return null;
+        }
+        for (int i = 0; i < key.length(); i++) {
+            if (!Character.isDigit(key.charAt(i))) {
+                return null;
+            }
+        }
+        long index = Long.parseLong(key);
+        return index <= Integer.MAX_VALUE ? index : null;
+    }
+
+    private static String[] segments(String path) {
+        return Arrays.stream(path.split("/")).filter(s -> !s.isEmpty()).toArray(String[]::new);
+    }
+
+    private static NavigableMap<String, Object> newNode() {
+        return new TreeMap<>(KEY_ORDER);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static NavigableMap<String, Object> asNode(Object node) {
+        return (NavigableMap<String, Object>) node;
+    }
+
+    private final class Watch<T> {
+        private final String[] segments;
+        private final Class<T> clazz;
+        private final Consumer<T> listener;
+
+        private Watch(String[] segments, Class<T> clazz, Consumer<T> listener) {
+            this.segments = segments;
+            this.clazz = clazz;
+            this.listener = listener;
+        }
+
+        private void deliver() {
+            Object value = toPlain(get(root, segments));
+            try {
+                listener.accept(value != null ? objectMapper.convertValue(value, clazz) : null);
+            } catch (RuntimeException e) {
+                log.warn("Value listener failed", e);
+            }
+        }
+    }
+
+    private static final class Increment {
+        private final long delta;
+
+        private Increment(long delta) {
+            this.delta = delta;
+        }
+
+        private Object applyTo(Object current) {
+            if (current == null && delta < 0) {
+                return null;
+            }
+            if (current instanceof Double || current instanceof Float) {
+                return ((Number) current).doubleValue() + delta;
+            }
+            return (current instanceof Number ? ((Number) current).longValue() : 0L) + delta;
+        }
+    }
+}
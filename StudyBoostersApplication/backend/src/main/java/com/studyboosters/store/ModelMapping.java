@@ -0,0 +1,170 @@
+package com.studyboosters.store;
+
+import com.studyboosters.model.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decodes stored records into models without bean reflection. Each hot model has a hand-written
+ * reader over the plain map form of a record (as {@code DataSnapshot.getValue()} returns it),
+ * resolved once per class; other classes fall back to the backend's generic mapping and get
+ * their id through {@link Identifiable}.
+ */
+public final class ModelMapping {
+
+    private static final Map<Class<?>, ModelReader<?>> READERS = Map.of(
+            StudyFile.class, (ModelReader<StudyFile>) ModelMapping::studyFile,
+            User.class, (ModelReader<User>) ModelMapping::user,
+            Subject.class, (ModelReader<Subject>) ModelMapping::subject,
+            ActivityLog.class, (ModelReader<ActivityLog>) ModelMapping::activityLog,
+            Doubt.class, (ModelReader<Doubt>) ModelMapping::doubt,
+            MentorRequest.class, (ModelReader<MentorRequest>) ModelMapping::mentorRequest);
+
+    private ModelMapping() {
+    }
+
+    /**
+     * Reads one child record into a model whose id is the child key.
+     */
+    @FunctionalInterface
+    public interface ModelReader<T> {
+        T read(String key, Map<String, Object> value);
+    }
+
+    /**
+     * The reader for a model class, or null if it has to go through generic mapping.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> ModelReader<T> reader(Class<T> clazz) {
+        return (ModelReader<T>) READERS.get(clazz);
+    }
+
+    /**
+     * Assigns the key as id for models that have one.
+     */
+    public static <T> T withId(T item, String key) {
+        if (item instanceof Identifiable) {
+            ((Identifiable) item).setId(key);
+        }
+        return item;
+    }
+
+    /**
+     * Views a decoded node as a record; anything that is not an object reads as an empty one.
+     */
+    @SuppressWarnings("unchecked")
+    public static Map<String, Object> record(Object value) {
+        return value instanceof Map ? (Map<String, Object>) value : Collections.emptyMap();
+    }
+
+    private static StudyFile studyFile(String key, Map<String, Object> value) {
+        StudyFile file = new StudyFile();
+        file.setId(key);
+        file.setTitle(string(value, "title"));
+        file.setSubject(string(value, "subject"));
+        file.setSemester(string(value, "semester"));
+        file.setUploader(string(value, "uploader"));
+        file.setUploaderId(string(value, "uploaderId"));
+        file.setFileType(string(value, "fileType"));
+        file.setFileSize(string(value, "fileSize"));
+        file.setUploadDate(string(value, "uploadDate"));
+        file.setDownloadCount(integer(value, "downloadCount"));
+        file.setDescription(string(value, "description"));
+        file.setStatus(string(value, "status"));
+        file.setFileBlobData(string(value, "fileBlobData"));
+        file.setFileChunks(strings(value, "fileChunks"));
+        file.setContentHash(string(value, "contentHash"));
+        file.setStatusUploadDate(string(value, "statusUploadDate"));
+        file.setStatusTitle(string(value, "statusTitle"));
+        file.setStatusSubjectUploadDate(string(value, "statusSubjectUploadDate"));
+        file.setTitleKey(string(value, "titleKey"));
+        return file;
+    }
+
+    private static User user(String key, Map<String, Object> value) {
+        return new User(key, string(value, "rollNumber"), string(value, "role"),
+                string(value, "createdAt"), string(value, "lastLogin"));
+    }
+
+    private static Subject subject(String key, Map<String, Object> value) {
+        return new Subject(key, string(value, "name"));
+    }
+
+    private static ActivityLog activityLog(String key, Map<String, Object> value) {
+        ActivityLog log = new ActivityLog();
+        log.setId(key);
+        log.setAction(string(value, "action"));
+        log.setDetails(string(value, "details"));
+        log.setDownloads(integer(value, "downloads"));
+        log.setTimestamp(string(value, "timestamp"));
+        log.setActionTimestamp(string(value, "actionTimestamp"));
+        return log;
+    }
+
+    private static Doubt doubt(String key, Map<String, Object> value) {
+        Doubt doubt = new Doubt();
+        doubt.setId(key);
+        doubt.setStudentId(string(value, "studentId"));
+        doubt.setStudentName(string(value, "studentName"));
+        doubt.setSubject(string(value, "subject"));
+        doubt.setQuestion(string(value, "question"));
+        doubt.setStatus(string(value, "status"));
+        doubt.setTimestamp(string(value, "timestamp"));
+        doubt.setAnswer(string(value, "answer"));
+        doubt.setAnsweredBy(string(value, "answeredBy"));
+        doubt.setAnsweredAt(string(value, "answeredAt"));
+        return doubt;
+    }
+
+    private static MentorRequest mentorRequest(String key, Map<String, Object> value) {
+        MentorRequest request = new MentorRequest();
+        request.setId(key);
+        request.setRollNumber(string(value, "rollNumber"));
+        request.setExpertise(string(value, "expertise"));
+        request.setYear(string(value, "year"));
+        request.setStatus(string(value, "status"));
+        request.setTimestamp(string(value, "timestamp"));
+        return request;
+    }
+
+    private static String string(Map<String, Object> value, String field) {
+        Object raw = value.get(field);
+        return raw != null ? raw.toString() : null;
+    }
+
+    private static Integer integer(Map<String, Object> value, String field) {
+        Object raw = value.get(field);
+        if (raw instanceof Number) {
+            return ((Number) raw).intValue();
+        }
+        if (raw instanceof String) {
+            try {
+                return Integer.valueOf((String) raw);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    // Firebase returns arrays as lists, or as maps of index keys when they are sparse
+    private static List<String> strings(Map<String, Object> value, String field) {
+        Object raw = value.get(field);
+        Iterable<?> items;
+        if (raw instanceof List) {
+            items = (List<?>) raw;
+        } else if (raw instanceof Map) {
+            items = ((Map<?, ?>) raw).values();
+        } else {
+            return null;
+        }
+        List<String> result = new ArrayList<>();
+        for (Object item : items) {
+            result.add(item != null ? item.toString() : null);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,47 @@
+package com.studyboosters.store;
+
+import java.security.SecureRandom;
+import java.util.Random;
+
+/**
+ * Generates Firebase-style push ids: 8 characters of millisecond timestamp followed by 12
+ * random characters, incremented within the same millisecond so ids sort chronologically.
+ */
+final class PushIds {
+
+    private static final String CHARS = "-0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ_abcdefghijklmnopqrstuvwxyz";
+
+    private final Random random = new SecureRandom();
+    private final int[] lastRandom = new int[12];
+    private long lastTime;
+
+    synchronized String next() {
+        long now = System.currentTimeMillis();
+        boolean sameMillisecond = now == lastTime;
+        lastTime = now;
+
+        char[] id = new char[20];
+        for (int i = 7; i >= 0; i--) {
+            id[i] = CHARS.charAt((int) (now % 64));
+            now /= 64;
+        }
+
+        if (!sameMillisecond) {
+            for (int i = 0; i < 12; i++) {
+                lastRandom[i] = random.nextInt(64);
+            }
+        } else {
+            int i = 11;
+            for (; i >= 0 && lastRandom[i] == 63; i--) {
+                lastRandom[i] = 0;
+            }
+            if (i >= 0) {
+                lastRandom[i]++;
+            }
+        }
+        for (int i = 0; i < 12; i++) {
+            id[8 + i] = CHARS.charAt(lastRandom[i]);
+        }
+        return new String(id);
+    }
+}
@@ -0,0 +1,247 @@
+package com.studyboosters.store;
+
+import com.studyboosters.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Bulkheads and deadlines for remote store calls. Reads, writes and admin operations each get a
+ * concurrency limit with a bounded queue, so a stall in one class cannot take the others down.
+ * A call that cannot run at once is queued without blocking any thread; once the oldest queued
+ * call has waited longer than {@code storage.guard.max-queue-delay-ms}, or the queue is full,
+ * new calls are shed with {@link ServiceUnavailableException} (503 with Retry-After). Every call,
+ * queueing included, fails the same way when it passes its deadline.
+ * <p>
+ * A deadline only answers the caller: a started call keeps its slot until the store settles it, so
+ * a stalled store never has more calls outstanding than the limit. A call the store never settles
+ * is written off after {@code storage.guard.abandon-after-ms}. Since the call is not cancelled, a
+ * write answered with 503 on its deadline may still be applied later. Writes of absolute values
+ * are safe to retry; a retried counter delta is applied twice.
+ */
+@Component
+@RequiredArgsConstructor
+public class StoreGuard {
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${storage.guard.read.max-concurrent:64}")
+    private int readMaxConcurrent;
+
+    @Value("${storage.guard.read.max-queue:512}")
+    private int readMaxQueue;
+
+    @Value("${storage.guard.read.deadline-ms:5000}")
+    private long readDeadlineMs;
+
+    @Value("${storage.guard.write.max-concurrent:32}")
+    private int writeMaxConcurrent;
+
+    @Value("${storage.guard.write.max-queue:256}")
+    private int writeMaxQueue;
+
+    @Value("${storage.guard.write.deadline-ms:10000}")
+    private long writeDeadlineMs;
+
+    @Value("${storage.guard.admin.max-concurrent:1}")
+    private int adminMaxConcurrent;
+
+    @Value("${storage.guard.admin.max-queue:0}")
+    private int adminMaxQueue;
+
+    @Value("${storage.guard.admin.deadline-ms:60000}")
+    private long adminDeadlineMs;
+
+    @Value("${storage.guard.max-queue-delay-ms:500}")
+    private long maxQueueDelayMs;
+
+    @Value("${storage.guard.abandon-after-ms:120000}")
+    private long abandonAfterMs;
+
+    private Bulkhead reads;
+    private Bulkhead writes;
+    private Bulkhead admin;
+
+    @PostConstruct
+    public void init() {
+        reads = new Bulkhead("read", readMaxConcurrent, readMaxQueue, readDeadlineMs);
+        writes = new Bulkhead("write", writeMaxConcurrent, writeMaxQueue, writeDeadlineMs);
+        admin = new Bulkhead("admin", adminMaxConcurrent, adminMaxQueue, adminDeadlineMs);
+    }
+
+    public <T> CompletableFuture<T> read(Supplier<CompletableFuture<T>> operation) {
+        return reads.submit(operation);
+    }
+
+    public <T> CompletableFuture<T> write(Supplier<CompletableFuture<T>> operation) {
+        return writes.submit(operation);
+    }
+
+    public <T> CompletableFuture<T> admin(Supplier<CompletableFuture<T>> operation) {
+        return admin.submit(operation);
+    }
+
+    private final class Bulkhead {
+        private final String name;
+        private final int maxConcurrent;
+        private final int maxQueue;
+        private final long deadlineMs;
+
+        private final ArrayDeque<Call<?>> queue = new ArrayDeque<>(); // guarded by this
+        private int active; // guarded by this
+
+        private final Timer queueWait;
+        private final Counter queueFull;
+        private final Counter queueDelay;
+        private final Counter deadline;
+        private final Counter abandoned;
+
+        private Bulkhead(String name, int maxConcurrent, int maxQueue, long deadlineMs) {
+            this.name = name;
+            this.maxConcurrent = maxConcurrent;
+            this.maxQueue = maxQueue;
+            this.deadlineMs = deadlineMs;
+
+            Gauge.builder("store.bulkhead.active", this, bulkhead -> bulkhead.active)
+                    .tag("bulkhead", name).register(meterRegistry);
+            Gauge.builder("store.bulkhead.queued", this, Bulkhead::queued)
+                    .tag("bulkhead", name).register(meterRegistry);
+            queueWait = Timer.builder("store.bulkhead.wait").tag("bulkhead", name).register(meterRegistry);
+            queueFull = rejections("queue_full");
+            queueDelay = rejections("queue_delay");
+            deadline = rejections("deadline");
+            abandoned = Counter.builder("store.bulkhead.abandoned").tag("bulkhead", name).register(meterRegistry);
+        }
+
+        private <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> operation) {
+            Call<T> call = new Call<>(operation);
+            synchronized (this) {
+                if (active < maxConcurrent) {
+                    active++;
+                } else {
+                    long delayMs = queue.isEmpty() ? 0 : queue.peekFirst().waitedMs();
+                    if (queue.size() >= maxQueue) {
+                        queueFull.increment();
+                        return CompletableFuture.failedFuture(overloaded(delayMs));
+                    }
+                    if (delayMs > maxQueueDelayMs) {
+                        queueDelay.increment();
+                        return CompletableFuture.failedFuture(overloaded(delayMs));
+                    }
+                    queue.addLast(call);
+                    return withDeadline(call);
+                }
+            }
+            start(call);
+            return withDeadline(call);
+        }
+
+        private <T> void start(Call<T> call) {
+            queueWait.record(System.nanoTime() - call.queuedAt, TimeUnit.NANOSECONDS);
+
+            CompletableFuture<T> started;
+            try {
+                started = call.operation.get();
+            } catch (RuntimeException e) {
+                started = CompletableFuture.failedFuture(e);
+            }
+            CompletableFuture<T> pending = started;
+            pending.whenComplete((value, e) -> {
+                if (e != null) {
+                    call.result.completeExceptionally(e);
+                } else {
+                    call.result.complete(value);
+                }
+            });
+
+            // The slot is freed when the store settles the call, not when the caller stops waiting;
+            // only a call the store never settles is given up on
+            long holdMs = Math.max(abandonAfterMs, deadlineMs);
+            pending.copy().orTimeout(holdMs, TimeUnit.MILLISECONDS).whenComplete((value, e) -> {
+                if (!pending.isDone()) {
+                    abandoned.increment();
+                }
+                call.finish(this);
+            });
+        }
+
+        private void release() {
+            Call<?> next;
+            synchronized (this) {
+                // Calls that passed their deadline while queued have already been answered
+                do {
+                    next = queue.pollFirst();
+                } while (next != null && next.result.isDone());
+                if (next == null) {
+                    active--;
+                    return;
+                }
+            }
+            start(next);
+        }
+
+        private <T> CompletableFuture<T> withDeadline(Call<T> call) {
+            return call.result.orTimeout(deadlineMs, TimeUnit.MILLISECONDS).exceptionally(e -> {
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                if (cause instanceof TimeoutException) {
+                    deadline.increment();
+                    throw new ServiceUnavailableException("Storage did not respond within " + deadlineMs + " ms",
+                            retryAfterSeconds(deadlineMs));
+                }
+                throw e instanceof CompletionException ? (CompletionException) e : new CompletionException(e);
+            });
+        }
+
+        private synchronized int queued() {
+            return queue.size();
+        }
+
+        private ServiceUnavailableException overloaded(long delayMs) {
+            return new ServiceUnavailableException("Storage is overloaded (" + name + " calls)",
+                    retryAfterSeconds(Math.max(delayMs, maxQueueDelayMs)));
+        }
+
+        private Counter rejections(String reason) {
+            return Counter.builder("store.rejected").tag("bulkhead", name).tag("reason", reason)
+                    .register(meterRegistry);
+        }
+    }
+
+    private static long retryAfterSeconds(long delayMs) {
+        return Math.max(1, TimeUnit.MILLISECONDS.toSeconds(delayMs + 999));
+    }
+
+    private static final class Call<T> {
+        private final Supplier<CompletableFuture<T>> operation;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private final long queuedAt = System.nanoTime();
+        private final AtomicBoolean finished = new AtomicBoolean();
+
+        private Call(Supplier<CompletableFuture<T>> operation) {
+            this.operation = operation;
+        }
+
+        private long waitedMs() {
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - queuedAt);
+        }
+
+        private void finish(Bulkhead bulkhead) {
+            if (finished.compareAndSet(false, true)) {
+                bulkhead.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.studyboosters.store;
+
+import com.studyboosters.exception.ResourceNotFoundException;
+import com.studyboosters.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Micrometer meters for {@link DataStore} operations: {@code store.operation} timers,
+ * {@code store.inflight} gauges, {@code store.errors} counters and {@code store.list.items}
+ * summaries. Paths are tagged by their first segment (the collection), so ids and hashes never
+ * become tag values. Percentiles and histogram buckets are configured in application.properties.
+ */
+@Component
+@RequiredArgsConstructor
+public class StoreMetrics {
+
+    private final MeterRegistry registry;
+
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Times {@code operation} from the call until its future completes.
+     */
+    public <T> CompletableFuture<T> timed(String op, String path, Supplier<CompletableFuture<T>> operation) {
+        String collection = collection(path);
+        AtomicInteger running = inFlight(op);
+        long start = System.nanoTime();
+        running.incrementAndGet();
+
+        CompletableFuture<T> future;
+        try {
+            future = operation.get();
+        } catch (RuntimeException e) {
+            running.decrementAndGet();
+            timer(op, collection, "error").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+        return future.whenComplete((result, e) -> {
+            running.decrementAndGet();
+            timer(op, collection, outcome(e)).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        });
+    }
+
+    /**
+     * Counts a failure reported by the database, tagged with its error code.
+     */
+    public void error(String op, String path, int code) {
+        Counter.builder("store.errors")
+                .tag("op", op)
+                .tag("path", collection(path))
+                .tag("code", String.valueOf(code))
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * Records how many children a list read returned.
+     */
+    public void listSize(String op, String path, int items) {
+        DistributionSummary.builder("store.list.items")
+                .baseUnit("items")
+                .tag("op", op)
+                .tag("path", collection(path))
+                .register(registry)
+                .record(items);
+    }
+
+    private Timer timer(String op, String collection, String outcome) {
+        return timers.computeIfAbsent(op + "|" + collection + "|" + outcome, key -> Timer.builder("store.operation")
+                .tag("op", op)
+                .tag("path", collection)
+                .tag("outcome", outcome)
+                .register(registry));
+    }
+
+    private AtomicInteger inFlight(String op) {
+        return inFlight.computeIfAbsent(op, key -> {
+            AtomicInteger running = new AtomicInteger();
+            Gauge.builder("store.inflight", running, AtomicInteger::get).tag("op", op).register(registry);
+            return running;
+        });
+    }
+
+    private static String outcome(Throwable e) {
+        if (e == null) {
+            return "success";
+        }
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        if (cause instanceof ServiceUnavailableException) {
+            return "unavailable"; // shed or past its deadline
+        }
+        // Lookups of missing ids are an expected result, not a store failure
+        return cause instanceof ResourceNotFoundException ? "not_found" : "error";
+    }
+
+    private static String collection(String path) {
+        if (path == null || path.isEmpty()) {
+            return "/";
+        }
+        int slash = path.indexOf('/');
+        return slash < 0 ? path : path.substring(0, slash);
+    }
+}
@@ -0,0 +1,120 @@
+package com.studyboosters.store;
+
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.Query;
+import lombok.Getter;
+
+/**
+ * Describes an ordered query for {@link DataStore#query}, with Firebase Realtime Database
+ * semantics: bounds are inclusive and a key alongside a value resumes from an exact child. A key
+ * with a null value bounds the children that have no value, which Firebase orders first.
+ */
+@Getter
+public class StoreQuery {
+
+    private final String orderByChild; // null orders by key
+    private Object startAt;
+    private String startAtKey;
+    private Object endAt;
+    private String endAtKey;
+    private Object equalTo;
+    private Integer limitToFirst;
+    private Integer limitToLast;
+
+    private StoreQuery(String orderByChild) {
+        this.orderByChild = orderByChild;
+    }
+
+    public static StoreQuery orderByKey() {
+        return new StoreQuery(null);
+    }
+
+    public static StoreQuery orderByChild(String child) {
+        return new StoreQuery(child);
+    }
+
+    public StoreQuery startAt(Object value) {
+        return startAt(value, null);
+    }
+
+    public StoreQuery startAt(Object value, String key) {
+        this.startAt = value;
+        this.startAtKey = key;
+        return this;
+    }
+
+    public StoreQuery endAt(Object value) {
+        return endAt(value, null);
+    }
+
+    public StoreQuery endAt(Object value, String key) {
+        this.endAt = value;
+        this.endAtKey = key;
+        return this;
+    }
+
+    public StoreQuery equalTo(Object value) {
+        this.equalTo = value;
+        return this;
+    }
+
+    public StoreQuery limitToFirst(int limit) {
+        this.limitToFirst = limit;
+        return this;
+    }
+
+    public StoreQuery limitToLast(int limit) {
+        this.limitToLast = limit;
+        return this;
+    }
+
+    /**
+     * Translates this query onto a Firebase reference.
+     */
+    public Query apply(DatabaseReference ref) {
+        Query query = orderByChild != null ? ref.orderByChild(orderByChild) : ref.orderByKey();
+        if (equalTo != null) {
+            query = bound(query, equalTo, null, Bound.EQUAL);
+        }
+        if (startAt != null || startAtKey != null) {
+            query = bound(query, startAt, startAtKey, Bound.START);
+        }
+        if (endAt != null || endAtKey != null) {
+            query = bound(query, endAt, endAtKey, Bound.END);
+        }
+        if (limitToFirst != null) {
+            query = query.limitToFirst(limitToFirst);
+        }
+        if (limitToLast != null) {
+            query = query.limitToLast(limitToLast);
+        }
+        return query;
+    }
+
+    private enum Bound { START, END, EQUAL }
+
+    private static Query bound(Query query, Object value, String key, Bound bound) {
+        if (value instanceof Number) {
+            double number = ((Number) value).doubleValue();
+            switch (bound) {
+                case START: return key != null ? query.startAt(number, key) : query.startAt(number);
+                case END: return key != null ? query.endAt(number, key) : query.endAt(number);
+                default: return query.equalTo(number);
+            }
+        }
+        if (value instanceof Boolean) {
+            boolean flag = (Boolean) value;
+            switch (bound) {
+                case START: return key != null ? query.startAt(flag, key) : query.startAt(flag);
+                case END: return key != null ? query.endAt(flag, key) : query.endAt(flag);
+                default: return query.equalTo(flag);
+            }
+        }
+        String text = value != null ? value.toString() : null;
+        switch (bound) {
+            case START: return key != null ? query.startAt(text, key) : query.startAt(text);
+            case END: return key != null ? query.endAt(text, key) : query.endAt(text);
+            default: return query.equalTo(text);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.studyboosters.service;
+
+import com.studyboosters.exception.BadRequestException;
+import com.studyboosters.security.JwtTokenProvider;
+import com.studyboosters.store.DataStore;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.NullSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class AuthServiceTest {
+
+    @ParameterizedTest
+    @NullSource
+    @ValueSource(strings = {"", "   "})
+    void blankRollNumberIsRejectedBeforeAnyRead(String rollNumber) {
+        DataStore store = mock(DataStore.class);
+        AuthService service = new AuthService(store, mock(JwtTokenProvider.class), mock(ActivityLogService.class));
+        service.init();
+
+        assertThatThrownBy(() -> service.login(rollNumber)).isInstanceOf(BadRequestException.class);
+        verifyNoInteractions(store);
+    }
+}
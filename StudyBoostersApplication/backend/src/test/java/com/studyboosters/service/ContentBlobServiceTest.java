@@ -0,0 +1,109 @@
+package com.studyboosters.service;
+
+import com.studyboosters.exception.ServiceUnavailableException;
+import com.studyboosters.store.LocalDataStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ContentBlobServiceTest {
+
+    private static final String CONTENT = "data:text/plain;base64,"
+            + Base64.getEncoder().encodeToString("Unit 3 notes".getBytes(StandardCharsets.UTF_8));
+
+    @TempDir
+    Path directory;
+
+    private LocalDataStore store;
+    private ContentBlobService service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        store = new LocalDataStore(directory.toString(), false, 1000);
+        store.open();
+        service = new ContentBlobService(store);
+        ReflectionTestUtils.setField(service, "chunkSizeBytes", 786432);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        store.close();
+    }
+
+    @Test
+    void storesContentOnceAndCountsReferences() {
+        String hash = publish();
+        assertThat(publish()).isEqualTo(hash);
+        assertThat(refCount(hash)).isEqualTo(2L);
+        assertThat(service.find(hash).join()).isNotNull();
+    }
+
+    @Test
+    void releasesOnlyUnreferencedContent() {
+        String hash = publish();
+        service.releaseIfUnused(hash).join();
+        assertThat(service.find(hash).join()).isNotNull();
+
+        drop(hash);
+        service.releaseIfUnused(hash).join();
+        assertThat(store.getValue(ContentBlobService.path(hash), Map.class).join()).isNull();
+        assertThat(service.reference(hash).join()).isFalse();
+        assertThat(refCount(hash)).isNull();
+    }
+
+    @Test
+    void referenceKeepsContentFromConcurrentRelease() {
+        String hash = publish();
+        drop(hash);
+
+        // A reference claimed after the last file went, but before the release checked
+        assertThat(service.reference(hash).join()).isTrue();
+        service.releaseIfUnused(hash).join();
+        assertThat(service.find(hash).join()).isNotNull();
+        assertThat(refCount(hash)).isEqualTo(1L);
+    }
+
+    @Test
+    void tombstoneRefusesClaimsAndIsFinishedByNextUpload() {
+        String hash = publish();
+        store.setValue(ContentBlobService.path(hash) + "/refCount", -1).join();
+
+        assertThat(service.reference(hash).join()).isFalse();
+        assertThatThrownBy(this::publish).hasCauseInstanceOf(ServiceUnavailableException.class);
+        assertThat(store.getValue(ContentBlobService.path(hash), Map.class).join()).isNull();
+
+        assertThat(publish()).isEqualTo(hash);
+        assertThat(refCount(hash)).isEqualTo(1L);
+        assertThat(service.find(hash).join()).isNotNull();
+    }
+
+    // Stores the content and applies the caller's write, as a publish would
+    private String publish() {
+        Map<String, Object> updates = new HashMap<>();
+        String hash = service.store(CONTENT, null, updates).join();
+        store.updateChildren(updates).join();
+        return hash;
+    }
+
+    private void drop(String hash) {
+        Map<String, Object> updates = new HashMap<>();
+        service.dereference(hash, 1, updates);
+        store.updateChildren(updates).join();
+    }
+
+    private Long refCount(String hash) {
+        return store.getValue(ContentBlobService.path(hash) + "/refCount", Long.class).join();
+    }
+}
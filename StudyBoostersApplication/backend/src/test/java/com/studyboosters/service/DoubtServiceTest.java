@@ -0,0 +1,59 @@
+package com.studyboosters.service;
+
+import com.studyboosters.model.Doubt;
+import com.studyboosters.store.DataStore;
+import com.studyboosters.store.LocalDataStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.spy;
+
+class DoubtServiceTest {
+
+    @TempDir
+    Path directory;
+
+    private LocalDataStore store;
+    private DataStore failing;
+    private DoubtService service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        store = new LocalDataStore(directory.toString(), false, 1000);
+        store.open();
+        failing = spy(store);
+        service = new DoubtService(failing);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        store.close();
+    }
+
+    @Test
+    void failedAnswerWriteReleasesTheClaim() {
+        Doubt doubt = service.postDoubt("Maths", "Why?", "s1", "Student").join();
+        doReturn(CompletableFuture.failedFuture(new IllegalStateException("store down")))
+                .when(failing).updateChildren(any());
+
+        assertThatThrownBy(() -> service.answerDoubt(doubt.getId(), "Because", "t1").join())
+                .hasCauseInstanceOf(IllegalStateException.class);
+        assertThat(service.getDoubts("Maths", null, 10, null).join().getItems())
+                .extracting(Doubt::getStatus).containsExactly("Pending");
+
+        doCallRealMethod().when(failing).updateChildren(any());
+        assertThat(service.answerDoubt(doubt.getId(), "Because", "t1").join().getAnswer()).isEqualTo("Because");
+        assertThat(service.getDoubts("Maths", "Answered", 10, null).join().getItems()).hasSize(1);
+    }
+}
@@ -0,0 +1,69 @@
+package com.studyboosters.service;
+
+import com.studyboosters.exception.BadRequestException;
+import com.studyboosters.model.StudyFile;
+import com.studyboosters.store.StoreQuery;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FileQueryPlanTest {
+
+    @Test
+    void statusFilterUsesCompositeKeyRange() {
+        StoreQuery query = FileQueryPlan.plan("Approved", null, null, null, null).query(null, null, 10);
+        assertThat(query.getOrderByChild()).isEqualTo("statusUploadDate");
+        assertThat(query.getStartAt()).isEqualTo("Approved|");
+        assertThat(query.getEndAt()).isEqualTo("Approved|");
+        assertThat(query.getLimitToLast()).isEqualTo(10);
+    }
+
+    @Test
+    void bothTitleSortsOrderLowercaseKeys() {
+        StudyFile file = file("f1", "Banana");
+        assertThat(FileQueryPlan.plan(null, null, null, null, "title").query(null, null, 10).getOrderByChild())
+                .isEqualTo("titleKey");
+        assertThat(FileQueryPlan.plan(null, null, null, null, "title").sortValue(file)).isEqualTo("banana");
+        assertThat(FileQueryPlan.plan("Approved", null, null, null, "title").sortValue(file))
+                .isEqualTo("Approved|banana");
+    }
+
+    @Test
+    void cursorCarriesSortValueOrOnlyTheKey() {
+        FileQueryPlan plan = FileQueryPlan.plan(null, null, null, null, "uploadDate");
+        StudyFile dated = file("f1", "A");
+        StudyFile undated = file("f2", "B");
+        undated.setUploadDate(null);
+
+        assertThat(plan.cursorOf(dated)).isEqualTo("f1~2024-01-01");
+        assertThat(plan.cursorOf(undated)).isEqualTo("f2");
+
+        StoreQuery resumed = plan.query("f2", null, 10);
+        assertThat(resumed.getEndAt()).isNull();
+        assertThat(resumed.getEndAtKey()).isEqualTo("f2");
+    }
+
+    @Test
+    void downloadCountCursorMustBeNumeric() {
+        FileQueryPlan plan = FileQueryPlan.plan(null, null, null, null, "downloadCount");
+        assertThat(plan.cursorValue("42")).isEqualTo(42L);
+        assertThatThrownBy(() -> plan.cursorValue("many")).isInstanceOf(BadRequestException.class);
+    }
+
+    @Test
+    void rejectsUnknownSort() {
+        assertThatThrownBy(() -> FileQueryPlan.plan(null, null, null, null, "size"))
+                .isInstanceOf(BadRequestException.class);
+    }
+
+    private static StudyFile file(String id, String title) {
+        StudyFile file = new StudyFile();
+        file.setId(id);
+        file.setTitle(title);
+        file.setStatus("Approved");
+        file.setUploadDate("2024-01-01");
+        StudyFileService.applySortKeys(file);
+        return file;
+    }
+}
@@ -0,0 +1,212 @@
+package com.studyboosters.service;
+
+import com.studyboosters.dto.response.PageResponse;
+import com.studyboosters.exception.ResourceNotFoundException;
+import com.studyboosters.model.StudyFile;
+import com.studyboosters.store.DataStore;
+import com.studyboosters.store.LocalDataStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StudyFileServiceTest {
+
+    @TempDir
+    Path directory;
+
+    private LocalDataStore store;
+    private ModerationQueueService moderationQueue;
+    private ContentBlobService contentBlobs;
+    private CollectionVersions versions;
+    private StudyFileService service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        store = new LocalDataStore(directory.toString(), false, 1000);
+        store.open();
+        ActivityLogService activityLog = mock(ActivityLogService.class);
+        when(activityLog.addLog(anyString(), anyString(), any())).thenReturn(CompletableFuture.completedFuture(null));
+        DownloadCounterService downloadCounter = mock(DownloadCounterService.class);
+        when(downloadCounter.merge(any())).thenAnswer(call -> call.getArgument(0));
+        moderationQueue = new ModerationQueueService(store, downloadCounter);
+        contentBlobs = mock(ContentBlobService.class);
+        versions = mock(CollectionVersions.class);
+        service = new StudyFileService(store, activityLog, mock(SettingsService.class),
+                downloadCounter, mock(FileSearchService.class), versions,
+                contentBlobs, moderationQueue);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        store.close();
+    }
+
+    @Test
+    void pagesPastRowsWithoutSortValue() {
+        Map<String, Object> updates = new HashMap<>();
+        for (int i = 0; i < 4; i++) {
+            put(updates, file("d" + i, "Dated " + i, "2024-01-0" + (i + 1), "PDF"));
+        }
+        for (int i = 0; i < 3; i++) {
+            put(updates, file("u" + i, "Undated " + i, null, "PDF"));
+        }
+        store.updateChildren(updates).join();
+
+        List<String> ids = allPages(null, "uploadDate", 2);
+        assertThat(ids).containsExactly("d3", "d2", "d1", "d0", "u2", "u1", "u0");
+    }
+
+    @Test
+    void titleSortIgnoresCaseWithAndWithoutStatus() {
+        Map<String, Object> updates = new HashMap<>();
+        put(updates, file("f1", "banana", "2024-01-01", "PDF"));
+        put(updates, file("f2", "Apple", "2024-01-02", "PDF"));
+        put(updates, file("f3", "cherry", "2024-01-03", "PDF"));
+        put(updates, file("f4", "apricot", "2024-01-04", "PDF"));
+        store.updateChildren(updates).join();
+
+        assertThat(titles(service.getFiles(null, null, null, null, "title", 10, null).join()))
+                .containsExactly("Apple", "apricot", "banana", "cherry");
+        assertThat(titles(service.getFiles("Approved", null, null, null, "title", 10, null).join()))
+                .containsExactly("Apple", "apricot", "banana", "cherry");
+    }
+
+    @Test
+    void scanBudgetEndsShortPageWithCursorToContinue() {
+        Map<String, Object> updates = new HashMap<>();
+        for (int i = 0; i < 400; i++) {
+            put(updates, file(String.format("p%03d", i), "Notes " + i, String.format("2024-02-%03d", i), "PDF"));
+        }
+        put(updates, file("x1", "Old slides", "2023-01-01", "PPT"));
+        put(updates, file("x2", "Older slides", "2022-01-01", "PPT"));
+        store.updateChildren(updates).join();
+
+        PageResponse<StudyFile> first = service.getFiles(null, null, null, "PPT", "uploadDate", 10, null).join();
+        assertThat(first.getItems()).isEmpty();
+        assertThat(first.isHasMore()).isTrue();
+        assertThat(first.getNextCursor()).isNotNull();
+
+        assertThat(allPages("PPT", "uploadDate", 10)).containsExactly("x1", "x2");
+    }
+
+    @Test
+    void repeatedModerationMovesCountsOnce() {
+        StudyFile file = file("f1", "Notes", "2024-01-01", "PDF");
+        file.setStatus("Pending");
+        StudyFileService.applySortKeys(file);
+        Map<String, Object> updates = new HashMap<>();
+        Map<String, Integer> counts = new HashMap<>();
+        put(updates, file);
+        moderationQueue.stageAdded("f1", file, updates, counts);
+        store.updateChildren(updates).join();
+        moderationQueue.applyCounts(counts).join();
+
+        service.approveFile("f1").join();
+        service.approveFile("f1").join();
+        assertThat(service.approveFiles(List.of("f1")).join()).containsEntry("f1", "already_approved");
+        assertThat(moderationQueue.getCounts().join()).containsEntry("Pending", 0L).containsEntry("Approved", 1L);
+        assertThat(moderationQueue.getPending(10, null).join().getItems()).isEmpty();
+
+        assertThat(service.deleteFiles(List.of("f1")).join()).containsEntry("f1", "deleted");
+        assertThat(service.deleteFiles(List.of("f1")).join()).containsEntry("f1", "not_found");
+        assertThat(moderationQueue.getCounts().join()).containsEntry("Approved", 0L);
+    }
+
+    @Test
+    void failedCountChangeIsReconciledFromTheFiles() {
+        Map<String, Object> updates = new HashMap<>();
+        put(updates, file("f1", "Notes", "2024-01-01", "PDF"));
+        put(updates, file("f2", "Slides", "2024-01-02", "PPT"));
+        store.updateChildren(updates).join();
+        DataStore failing = spy(store);
+        doReturn(CompletableFuture.failedFuture(new IllegalStateException("store down")))
+                .when(failing).transaction(anyString(), any(), any());
+
+        ModerationQueueService queue = new ModerationQueueService(failing, mock(DownloadCounterService.class));
+        queue.applyCounts(Map.of("Approved", 2)).join();
+        assertThat(queue.getCounts().join()).containsEntry("Approved", 0L);
+
+        queue.scheduledReconcile();
+        assertThat(queue.getCounts().join()).containsEntry("Approved", 2L);
+    }
+
+    @Test
+    void downloadsLeaveTheListingVersionAlone() {
+        StudyFile file = file("f1", "Notes", "2024-01-01", "PDF");
+
+        assertThat(service.recordDownload(file, "R1").getDownloadCount()).isEqualTo(1);
+        verify(versions, never()).bump(CollectionVersions.FILES);
+    }
+
+    @Test
+    void byHashOnlyOffersTheUploadersOwnContent() {
+        String hash = "ab".repeat(32);
+        StudyFile mine = file("f1", "Notes", "2024-01-01", "PDF");
+        mine.setUploaderId("u1");
+        mine.setContentHash(hash);
+        Map<String, Object> updates = new HashMap<>();
+        put(updates, mine);
+        store.updateChildren(updates).join();
+
+        StudyFile copy = new StudyFile();
+        copy.setTitle("Copy");
+        copy.setContentHash(hash);
+        assertThatThrownBy(() -> service.uploadByHash(copy, "u2", "R2").join())
+                .hasCauseInstanceOf(ResourceNotFoundException.class);
+        verify(contentBlobs, never()).reference(hash);
+    }
+
+    private List<String> allPages(String fileType, String sort, int limit) {
+        List<String> ids = new ArrayList<>();
+        String cursor = null;
+        for (int pages = 0; pages < 100; pages++) {
+            PageResponse<StudyFile> page = service.getFiles(null, null, null, fileType, sort, limit, cursor).join();
+            page.getItems().forEach(file -> ids.add(file.getId()));
+            cursor = page.getNextCursor();
+            if (cursor == null) {
+                return ids;
+            }
+        }
+        throw new AssertionError("Listing did not end");
+    }
+
+    private static List<String> titles(PageResponse<StudyFile> page) {
+        return page.getItems().stream().map(StudyFile::getTitle).collect(Collectors.toList());
+    }
+
+    private static void put(Map<String, Object> updates, StudyFile file) {
+        updates.put(StudyFileService.FILES_PATH + "/" + file.getId(), file);
+    }
+
+    private static StudyFile file(String id, String title, String uploadDate, String fileType) {
+        StudyFile file = new StudyFile();
+        file.setId(id);
+        file.setTitle(title);
+        file.setUploadDate(uploadDate);
+        file.setFileType(fileType);
+        file.setStatus("Approved");
+        StudyFileService.applySortKeys(file);
+        return file;
+    }
+}
@@ -0,0 +1,95 @@
+package com.studyboosters.service;
+
+import com.studyboosters.dto.request.UploadInitRequest;
+import com.studyboosters.exception.ConflictException;
+import com.studyboosters.exception.UnauthorizedException;
+import com.studyboosters.model.UploadSession;
+import com.studyboosters.store.LocalDataStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UploadSessionServiceTest {
+
+    @TempDir
+    Path directory;
+
+    private LocalDataStore store;
+    private ContentBlobService contentBlobs;
+    private UploadSessionService service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        store = new LocalDataStore(directory.toString(), false, 1000);
+        store.open();
+        contentBlobs = mock(ContentBlobService.class);
+        service = new UploadSessionService(store, mock(StudyFileService.class), contentBlobs);
+        ReflectionTestUtils.setField(service, "chunkSizeBytes", 786432);
+        ReflectionTestUtils.setField(service, "maxTotalBytes", 104857600L);
+        ReflectionTestUtils.setField(service, "sessionTtlMs", 86400000L);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        store.close();
+    }
+
+    @Test
+    void claimedSessionRejectsASecondCommit() {
+        String sessionId = uploadedSession();
+        store.setValue(UploadSessionService.SESSIONS_PATH + "/" + sessionId + "/state",
+                UploadSessionService.COMMITTING).join();
+
+        assertThatThrownBy(() -> service.commit(sessionId, "u1").join())
+                .hasCauseInstanceOf(ConflictException.class);
+        assertThatThrownBy(() -> service.abort(sessionId, "u1").join())
+                .hasCauseInstanceOf(ConflictException.class);
+        verify(contentBlobs, never()).adopt(anyString(), any(), any());
+    }
+
+    @Test
+    void failedCommitReleasesTheClaim() {
+        String sessionId = uploadedSession();
+        when(contentBlobs.adopt(anyString(), any(), any()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("store down")));
+
+        assertThatThrownBy(() -> service.commit(sessionId, "u1").join())
+                .hasCauseInstanceOf(IllegalStateException.class);
+        verify(contentBlobs).adopt(anyString(), any(), any());
+        assertThat(service.getSession(sessionId, "u1").join().getState()).isNull();
+    }
+
+    @Test
+    void sessionWithoutOwnerIsRefused() {
+        String sessionId = uploadedSession();
+        store.setValue(UploadSessionService.SESSIONS_PATH + "/" + sessionId + "/uploaderId", null).join();
+
+        assertThatThrownBy(() -> service.getSession(sessionId, "u1").join())
+                .hasCauseInstanceOf(UnauthorizedException.class);
+    }
+
+    // A one-chunk session with its chunk received
+    private String uploadedSession() {
+        UploadInitRequest request = new UploadInitRequest();
+        request.setTitle("Notes");
+        request.setTotalSize(3L);
+        UploadSession session = service.initSession(request, "u1", "R1").join();
+        service.putChunk(session.getId(), 0, new byte[3], "u1").join();
+        return session.getId();
+    }
+}
@@ -0,0 +1,151 @@
+package com.studyboosters.store;
+
+import com.studyboosters.model.StudyFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LocalDataStoreTest {
+
+    @TempDir
+    Path directory;
+
+    private LocalDataStore store;
+
+    @AfterEach
+    void closeStore() throws IOException {
+        if (store != null) {
+            store.close();
+        }
+    }
+
+    @Test
+    void replaysLoggedWritesAfterRestart() throws IOException {
+        store = open(1000);
+        store.setValue("subjects/a/name", "Maths").join();
+        store.updateChildren(Map.of("subjects/b/name", "Physics", "counts/files", store.increment(2))).join();
+        store.updateChildren(Map.of("counts/files", store.increment(3))).join();
+        store.close();
+
+        store = open(1000);
+        assertThat(store.getValue("subjects/a/name", String.class).join()).isEqualTo("Maths");
+        assertThat(store.getValue("subjects/b/name", String.class).join()).isEqualTo("Physics");
+        assertThat(store.getValue("counts/files", Long.class).join()).isEqualTo(5L);
+    }
+
+    @Test
+    void skipsTornRecordsInTheMiddleOfTheLog() throws IOException {
+        store = open(1000);
+        store.setValue("a", "first").join();
+        store.close();
+        store = null;
+
+        // A record cut short by a failed append, followed by a later good one
+        Files.writeString(directory.resolve("wal.log"), "{\"b\":\"tor\n{\"c\":\"later\"}\n",
+                StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        store = open(1000);
+        assertThat(store.getValue("a", String.class).join()).isEqualTo("first");
+        assertThat(store.getValue("b", String.class).join()).isNull();
+        assertThat(store.getValue("c", String.class).join()).isEqualTo("later");
+    }
+
+    @Test
+    void compactsInTheBackgroundWithoutLosingWrites() throws IOException {
+        store = open(3);
+        for (int i = 0; i < 20; i++) {
+            store.setValue("items/i" + i, i).join();
+        }
+        store.close();
+
+        try (Stream<Path> files = Files.list(directory)) {
+            assertThat(files.map(file -> file.getFileName().toString()))
+                    .noneMatch(name -> name.startsWith("wal-"));
+        }
+
+        store = open(3);
+        Map<?, ?> items = store.getValue("items", Map.class).join();
+        assertThat(items).hasSize(20);
+        assertThat(store.getValue("items/i19", Long.class).join()).isEqualTo(19L);
+    }
+
+    @Test
+    void replaysRotatedSegmentsLeftByAnInterruptedCompaction() throws IOException {
+        store = open(1000);
+        store.setValue("a", "snapshotted").join();
+        store.close();
+        store = null;
+
+        // Written after the snapshot, rotated, but never folded into it
+        Files.writeString(directory.resolve("wal-7.log"), "{\"b\":\"rotated\"}\n{\"a\":\"overwritten\"}\n",
+                StandardCharsets.UTF_8);
+        Files.writeString(directory.resolve("wal.log"), "{\"c\":\"current\"}\n", StandardCharsets.UTF_8);
+
+        store = open(1000);
+        assertThat(store.getValue("a", String.class).join()).isEqualTo("overwritten");
+        assertThat(store.getValue("b", String.class).join()).isEqualTo("rotated");
+        assertThat(store.getValue("c", String.class).join()).isEqualTo("current");
+        assertThat(Files.exists(directory.resolve("wal-7.log"))).isFalse();
+    }
+
+    @Test
+    void transactionsApplyOnlyRealChanges() throws IOException {
+        store = open(1000);
+        assertThat(store.transaction("files/f1/downloadCount", Long.class,
+                count -> count != null ? count + 1 : null).join()).isFalse();
+        assertThat(store.getValue("files/f1", Map.class).join()).isNull();
+
+        store.setValue("files/f1/downloadCount", 4).join();
+        assertThat(store.transaction("files/f1/downloadCount", Long.class,
+                count -> count != null ? count + 1 : null).join()).isTrue();
+        assertThat(store.getValue("files/f1/downloadCount", Long.class).join()).isEqualTo(5L);
+    }
+
+    @Test
+    void negativeIncrementLeavesAbsentValueAbsent() throws IOException {
+        store = open(1000);
+        Map<String, Object> updates = new HashMap<>();
+        updates.put("counts/Pending", store.increment(-1));
+        store.updateChildren(updates).join();
+        assertThat(store.getValue("counts", Map.class).join()).isNull();
+    }
+
+    @Test
+    void ordersQueriesByChildValue() throws IOException {
+        store = open(1000);
+        Map<String, Object> updates = new HashMap<>();
+        updates.put("files/f1/title", "cherry");
+        updates.put("files/f2/title", "apple");
+        updates.put("files/f3/title", "banana");
+        updates.put("files/f4/size", 1);
+        store.updateChildren(updates).join();
+
+        assertThat(ids(store.query("files", StoreQuery.orderByChild("title"), StudyFile.class).join()))
+                .containsExactly("f4", "f2", "f3", "f1");
+        assertThat(ids(store.query("files", StoreQuery.orderByChild("title").startAt("apple", "f2").limitToFirst(2),
+                StudyFile.class).join())).containsExactly("f2", "f3");
+    }
+
+    private static List<String> ids(List<StudyFile> files) {
+        return files.stream().map(StudyFile::getId).collect(Collectors.toList());
+    }
+
+    private LocalDataStore open(int compactAfter) throws IOException {
+        LocalDataStore opened = new LocalDataStore(directory.toString(), false, compactAfter);
+        opened.open();
+        return opened;
+    }
+}